@@ -0,0 +1,96 @@
+package idealist.benchmarks;
+
+import idealist.dao.BeanJdbcAccessor;
+import idealist.dao.JdbcAccessor;
+import idealist.dao.NameParameter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning named parameters, maps and beans into statement parameters, and filling an embedded H2
+ * statement with them.  Every invocation binds <code>rows</code> rows, as a batch would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int rows;
+
+    @Param({"4", "16"})
+    private int columns;
+
+    private final JdbcAccessor accessor = new JdbcAccessor();
+
+    private String sql;
+    private Map<String, Object> values;
+    private Row bean;
+    private Object[] params;
+    private Connection conn;
+    private PreparedStatement insert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        sql = Rows.namedInsert(columns);
+        values = Rows.map(columns);
+        bean = Rows.bean(columns);
+        params = Rows.values(1, columns)[0];
+        conn = Rows.database(0);
+        insert = conn.prepareStatement(NameParameter.getSql(sql));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Benchmark
+    public void nameParameterGetSql(Blackhole blackhole) {
+        for (int i = 0; i < rows; i++) {
+            blackhole.consume(NameParameter.getSql(sql));
+        }
+    }
+
+    @Benchmark
+    public void nameParameterGetParameters(Blackhole blackhole) {
+        for (int i = 0; i < rows; i++) {
+            blackhole.consume(NameParameter.getParameters(sql, values));
+        }
+    }
+
+    @Benchmark
+    public void beanJdbcAccessorToMap(Blackhole blackhole) {
+        for (int i = 0; i < rows; i++) {
+            blackhole.consume(BeanJdbcAccessor.toMap(bean));
+        }
+    }
+
+    @Benchmark
+    public void fillStatement() {
+        for (int i = 0; i < rows; i++) {
+            accessor.fillStatement(insert, params);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package idealist.benchmarks;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * The metadata of a {@link FakeResultSet}, typing each column after its value in the first row.
+ */
+public class FakeResultSetMetaData implements ResultSetMetaData {
+
+    private final String[] labels;
+    private final Object[] samples;
+
+    FakeResultSetMetaData(String[] labels, Object[] samples) {
+        this.labels = labels;
+        this.samples = samples;
+    }
+
+    int findColumn(String label) throws SQLException {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("No column " + label);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isSearchable(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isCurrency(int column) {
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) {
+        return columnNullableUnknown;
+    }
+
+    @Override
+    public boolean isSigned(int column) {
+        return samples[column - 1] instanceof Number;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) {
+        return 20;
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+        return labels[column - 1];
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return labels[column - 1];
+    }
+
+    @Override
+    public String getSchemaName(int column) {
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        return 0;
+    }
+
+    @Override
+    public int getScale(int column) {
+        return 0;
+    }
+
+    @Override
+    public String getTableName(int column) {
+        return "";
+    }
+
+    @Override
+    public String getCatalogName(int column) {
+        return "";
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        Object sample = samples[column - 1];
+        if (sample instanceof Long) {
+            return Types.BIGINT;
+        }
+        if (sample instanceof Integer) {
+            return Types.INTEGER;
+        }
+        return Types.VARCHAR;
+    }
+
+    @Override
+    public String getColumnTypeName(int column) {
+        int type = getColumnType(column);
+        return type == Types.BIGINT ? "BIGINT" : type == Types.INTEGER ? "INTEGER" : "VARCHAR";
+    }
+
+    @Override
+    public boolean isReadOnly(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) {
+        Object sample = samples[column - 1];
+        return sample == null ? Object.class.getName() : sample.getClass().getName();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper of " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
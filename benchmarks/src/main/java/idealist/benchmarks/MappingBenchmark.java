@@ -0,0 +1,128 @@
+package idealist.benchmarks;
+
+import idealist.dao.BasicRowProcessor;
+import idealist.dao.BeanProcessor;
+import idealist.dao.GenerousBeanProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping result sets to beans and maps, over an in-memory {@link FakeResultSet} that isolates the
+ * mapping code, or over an embedded H2 query that includes a real driver.  Every invocation maps all
+ * <code>rows</code> rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"fake", "h2"})
+    private String source;
+
+    @Param({"1", "100", "1000"})
+    private int rows;
+
+    @Param({"4", "16"})
+    private int columns;
+
+    private final BeanProcessor beanProcessor = new BeanProcessor();
+    private final GenerousBeanProcessor generousBeanProcessor = new GenerousBeanProcessor();
+    private final BasicRowProcessor rowProcessor = new BasicRowProcessor();
+
+    private FakeResultSet fake;
+    private FakeResultSet fakeUnderscored;
+    private Connection conn;
+    private PreparedStatement select;
+    private PreparedStatement selectUnderscored;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String[] labels = Rows.labels(columns, false);
+        String[] underscored = Rows.labels(columns, true);
+        if (source.equals("fake")) {
+            Object[][] values = Rows.values(rows, columns);
+            fake = new FakeResultSet(labels, values);
+            fakeUnderscored = new FakeResultSet(underscored, values);
+        } else {
+            conn = Rows.database(rows);
+            select = conn.prepareStatement(Rows.select(labels));
+            selectUnderscored = conn.prepareStatement(Rows.select(underscored));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (conn != null) {
+            conn.close();
+        }
+    }
+
+    @Benchmark
+    public List<Row> beanProcessorToBeanList() throws SQLException {
+        ResultSet rs = open(false);
+        try {
+            return beanProcessor.toBeanList(rs, Row.class);
+        } finally {
+            close(rs);
+        }
+    }
+
+    @Benchmark
+    public List<Row> generousBeanProcessorToBeanList() throws SQLException {
+        ResultSet rs = open(true);
+        try {
+            return generousBeanProcessor.toBeanList(rs, Row.class);
+        } finally {
+            close(rs);
+        }
+    }
+
+    @Benchmark
+    public void basicRowProcessorToMap(Blackhole blackhole) throws SQLException {
+        ResultSet rs = open(false);
+        try {
+            while (rs.next()) {
+                blackhole.consume(rowProcessor.toMap(rs));
+            }
+        } finally {
+            close(rs);
+        }
+    }
+
+    private ResultSet open(boolean underscored) throws SQLException {
+        if (fake != null) {
+            FakeResultSet rs = underscored ? fakeUnderscored : fake;
+            rs.beforeFirst();
+            return rs;
+        }
+        return (underscored ? selectUnderscored : select).executeQuery();
+    }
+
+    private void close(ResultSet rs) throws SQLException {
+        if (rs != fake && rs != fakeUnderscored) {
+            rs.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package idealist.benchmarks;
+
+/**
+ * The bean the benchmark rows map to, with as many properties as the widest row.  Even columns are numbers and
+ * odd columns are strings.
+ */
+public class Row {
+
+    private Long col0;
+    private String col1;
+    private Long col2;
+    private String col3;
+    private Long col4;
+    private String col5;
+    private Long col6;
+    private String col7;
+    private Long col8;
+    private String col9;
+    private Long col10;
+    private String col11;
+    private Long col12;
+    private String col13;
+    private Long col14;
+    private String col15;
+
+    public Long getCol0() {
+        return col0;
+    }
+
+    public void setCol0(Long col0) {
+        this.col0 = col0;
+    }
+
+    public String getCol1() {
+        return col1;
+    }
+
+    public void setCol1(String col1) {
+        this.col1 = col1;
+    }
+
+    public Long getCol2() {
+        return col2;
+    }
+
+    public void setCol2(Long col2) {
+        this.col2 = col2;
+    }
+
+    public String getCol3() {
+        return col3;
+    }
+
+    public void setCol3(String col3) {
+        this.col3 = col3;
+    }
+
+    public Long getCol4() {
+        return col4;
+    }
+
+    public void setCol4(Long col4) {
+        this.col4 = col4;
+    }
+
+    public String getCol5() {
+        return col5;
+    }
+
+    public void setCol5(String col5) {
+        this.col5 = col5;
+    }
+
+    public Long getCol6() {
+        return col6;
+    }
+
+    public void setCol6(Long col6) {
+        this.col6 = col6;
+    }
+
+    public String getCol7() {
+        return col7;
+    }
+
+    public void setCol7(String col7) {
+        this.col7 = col7;
+    }
+
+    public Long getCol8() {
+        return col8;
+    }
+
+    public void setCol8(Long col8) {
+        this.col8 = col8;
+    }
+
+    public String getCol9() {
+        return col9;
+    }
+
+    public void setCol9(String col9) {
+        this.col9 = col9;
+    }
+
+    public Long getCol10() {
+        return col10;
+    }
+
+    public void setCol10(Long col10) {
+        this.col10 = col10;
+    }
+
+    public String getCol11() {
+        return col11;
+    }
+
+    public void setCol11(String col11) {
+        this.col11 = col11;
+    }
+
+    public Long getCol12() {
+        return col12;
+    }
+
+    public void setCol12(Long col12) {
+        this.col12 = col12;
+    }
+
+    public String getCol13() {
+        return col13;
+    }
+
+    public void setCol13(String col13) {
+        this.col13 = col13;
+    }
+
+    public Long getCol14() {
+        return col14;
+    }
+
+    public void setCol14(Long col14) {
+        this.col14 = col14;
+    }
+
+    public String getCol15() {
+        return col15;
+    }
+
+    public void setCol15(String col15) {
+        this.col15 = col15;
+    }
+}
@@ -0,0 +1,145 @@
+package idealist.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The data shared by the benchmarks: <code>rows</code> rows of <code>columns</code> columns named
+ * <code>col0</code>, <code>col1</code>, ..., held in memory or in an embedded H2 table named <code>bench</code>.
+ */
+final class Rows {
+
+    /**
+     * The widest row, the number of properties of {@link Row}.
+     */
+    static final int MAX_COLUMNS = 16;
+
+    private static final AtomicInteger databases = new AtomicInteger();
+
+    private Rows() {
+    }
+
+    /**
+     * @param columns    The number of columns.
+     * @param underscore True for labels in underscore form, <code>col_0</code>, which only the generous mapping
+     *                   matches.
+     * @return The column labels.
+     */
+    static String[] labels(int columns, boolean underscore) {
+        String[] labels = new String[columns];
+        for (int i = 0; i < columns; i++) {
+            labels[i] = (underscore ? "col_" : "col") + i;
+        }
+        return labels;
+    }
+
+    static Object value(int row, int column) {
+        return column % 2 == 0 ? (Object) ((long) row * MAX_COLUMNS + column) : "value-" + row + "-" + column;
+    }
+
+    static Object[][] values(int rows, int columns) {
+        Object[][] values = new Object[rows][columns];
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                values[row][column] = value(row, column);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return The values of one row by column label.
+     */
+    static Map<String, Object> map(int columns) {
+        Map<String, Object> map = new HashMap<>();
+        for (int column = 0; column < columns; column++) {
+            map.put("col" + column, value(0, column));
+        }
+        return map;
+    }
+
+    /**
+     * @return A row with its first <code>columns</code> properties set.
+     */
+    static Row bean(int columns) {
+        Row row = new Row();
+        Object[] values = values(1, MAX_COLUMNS)[0];
+        row.setCol0((Long) values[0]);
+        row.setCol1((String) values[1]);
+        row.setCol2((Long) values[2]);
+        row.setCol3((String) values[3]);
+        if (columns > 4) {
+            row.setCol4((Long) values[4]);
+            row.setCol5((String) values[5]);
+            row.setCol6((Long) values[6]);
+            row.setCol7((String) values[7]);
+            row.setCol8((Long) values[8]);
+            row.setCol9((String) values[9]);
+            row.setCol10((Long) values[10]);
+            row.setCol11((String) values[11]);
+            row.setCol12((Long) values[12]);
+            row.setCol13((String) values[13]);
+            row.setCol14((Long) values[14]);
+            row.setCol15((String) values[15]);
+        }
+        return row;
+    }
+
+    /**
+     * Opens a new in-memory H2 database holding a <code>bench</code> table of <code>rows</code> rows of
+     * {@link #MAX_COLUMNS} columns.  The database lives until the connection is closed.
+     */
+    static Connection database(int rows) throws SQLException {
+        Connection conn = DriverManager.getConnection("jdbc:h2:mem:bench" + databases.incrementAndGet(), "sa", "");
+        StringBuilder create = new StringBuilder("create table bench(");
+        StringBuilder insert = new StringBuilder("insert into bench values(");
+        for (int column = 0; column < MAX_COLUMNS; column++) {
+            create.append(column == 0 ? "" : ", ").append("col").append(column)
+                    .append(column % 2 == 0 ? " bigint" : " varchar(64)");
+            insert.append(column == 0 ? "?" : ", ?");
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(create.append(')').toString());
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(insert.append(')').toString())) {
+            for (Object[] row : values(rows, MAX_COLUMNS)) {
+                for (int column = 0; column < row.length; column++) {
+                    stmt.setObject(column + 1, row[column]);
+                }
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return conn;
+    }
+
+    /**
+     * @return A query selecting the rows of the <code>bench</code> table with the given labels.
+     */
+    static String select(String[] labels) {
+        StringBuilder sql = new StringBuilder("select ");
+        for (int column = 0; column < labels.length; column++) {
+            sql.append(column == 0 ? "" : ", ").append("col").append(column).append(" as ").append(labels[column]);
+        }
+        return sql.append(" from bench").toString();
+    }
+
+    /**
+     * @return An INSERT into the <code>bench</code> table with one <code>#{colN}</code> parameter per column.
+     */
+    static String namedInsert(int columns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder values = new StringBuilder();
+        for (int column = 0; column < columns; column++) {
+            names.append(column == 0 ? "" : ", ").append("col").append(column);
+            values.append(column == 0 ? "" : ", ").append("#{col").append(column).append('}');
+        }
+        return "insert into bench(" + names + ") values(" + values + ")";
+    }
+}
@@ -0,0 +1,74 @@
+package idealist.benchmarks;
+
+import idealist.dao.BeanProcessor;
+import idealist.dao.ProxyFactory;
+import idealist.dao.wrappers.SqlNullCheckedResultSet;
+import idealist.dao.wrappers.StringTrimmedResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-cell cost of the result set decorators, mapping an in-memory {@link FakeResultSet} to beans
+ * undecorated, through the reflective proxies of {@link SqlNullCheckedResultSet} and {@link StringTrimmedResultSet},
+ * and through the single delegate their <code>wrap</code> methods create.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark {
+
+    @Param({"none", "proxy", "delegate"})
+    private String wrapper;
+
+    @Param({"1000"})
+    private int rows;
+
+    @Param({"16"})
+    private int columns;
+
+    private final BeanProcessor beanProcessor = new BeanProcessor();
+
+    private FakeResultSet fake;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fake = new FakeResultSet(Rows.labels(columns, false), Rows.values(rows, columns));
+    }
+
+    @Benchmark
+    public List<Row> beanProcessorToBeanList() throws SQLException {
+        fake.beforeFirst();
+        return beanProcessor.toBeanList(wrap(fake), Row.class);
+    }
+
+    private ResultSet wrap(ResultSet rs) {
+        switch (wrapper) {
+            case "proxy":
+                ProxyFactory factory = ProxyFactory.instance();
+                return factory.createResultSet(new StringTrimmedResultSet(
+                        factory.createResultSet(new SqlNullCheckedResultSet(rs))));
+            case "delegate":
+                return StringTrimmedResultSet.wrap(SqlNullCheckedResultSet.wrap(rs));
+            default:
+                return rs;
+        }
+    }
+}
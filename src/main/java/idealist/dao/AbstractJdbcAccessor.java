@@ -8,6 +8,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.sql.*;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * The base class for JdbcAccessor &amp; AsyncJdbcAccessor. This class is thread safe.
@@ -17,6 +18,17 @@ import java.util.Arrays;
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-19 00:59:18
  */
 public abstract class AbstractJdbcAccessor {
+    /**
+     * The maximum number of statements whose parameter metadata is cached.
+     */
+    private static final int PARAMETER_TYPES_CACHE_SIZE = 1024;
+
+    /**
+     * The time the last {@link #prepareConnection()} of the current thread took, picked up by the statement
+     * it was retrieved for.
+     */
+    private static final ThreadLocal<long[]> acquireNanos = ThreadLocal.withInitial(() -> new long[1]);
+
     /**
      * The DataSource to retrieve connections from.
      *
@@ -28,11 +40,24 @@ public abstract class AbstractJdbcAccessor {
      * Configuration to use when preparing statements.
      */
     private final StatementConfiguration stmtConfig;
+    /**
+     * Prepared statements kept open for reuse, or null if statement caching is not configured.
+     */
+    private final StatementCache statementCache;
+    /**
+     * Receives every executed statement, or null if statements are not timed.
+     */
+    private final StatementListener statementListener;
     /**
      * Is {@link ParameterMetaData#getParameterType(int)} broken (have we tried
      * it yet)?
      */
     private volatile boolean pmdKnownBroken = false;
+    /**
+     * Parameter counts and types reported by {@link ParameterMetaData}, by SQL text.
+     */
+    private final BoundedCache<String, ParameterTypes> parameterTypes =
+            new BoundedCache<>(PARAMETER_TYPES_CACHE_SIZE);
 
     /**
      * Default constructor, sets pmdKnownBroken to false, ds to null and stmtConfig to null.
@@ -40,6 +65,8 @@ public abstract class AbstractJdbcAccessor {
     public AbstractJdbcAccessor() {
         ds = null;
         this.stmtConfig = null;
+        this.statementCache = null;
+        this.statementListener = null;
     }
 
     /**
@@ -55,6 +82,8 @@ public abstract class AbstractJdbcAccessor {
         this.pmdKnownBroken = pmdKnownBroken;
         ds = null;
         this.stmtConfig = null;
+        this.statementCache = null;
+        this.statementListener = null;
     }
 
     /**
@@ -67,6 +96,8 @@ public abstract class AbstractJdbcAccessor {
     public AbstractJdbcAccessor(DataSource ds) {
         this.ds = ds;
         this.stmtConfig = null;
+        this.statementCache = null;
+        this.statementListener = null;
     }
 
     /**
@@ -78,6 +109,8 @@ public abstract class AbstractJdbcAccessor {
     public AbstractJdbcAccessor(StatementConfiguration stmtConfig) {
         this.ds = null;
         this.stmtConfig = stmtConfig;
+        this.statementCache = newStatementCache(stmtConfig);
+        this.statementListener = stmtConfig == null ? null : stmtConfig.getStatementListener();
     }
 
     /**
@@ -97,6 +130,8 @@ public abstract class AbstractJdbcAccessor {
         this.pmdKnownBroken = pmdKnownBroken;
         this.ds = ds;
         this.stmtConfig = null;
+        this.statementCache = null;
+        this.statementListener = null;
     }
 
     /**
@@ -111,6 +146,8 @@ public abstract class AbstractJdbcAccessor {
     public AbstractJdbcAccessor(DataSource ds, StatementConfiguration stmtConfig) {
         this.ds = ds;
         this.stmtConfig = stmtConfig;
+        this.statementCache = newStatementCache(stmtConfig);
+        this.statementListener = stmtConfig == null ? null : stmtConfig.getStatementListener();
     }
 
     /**
@@ -128,6 +165,8 @@ public abstract class AbstractJdbcAccessor {
         this.pmdKnownBroken = pmdKnownBroken;
         this.ds = ds;
         this.stmtConfig = stmtConfig;
+        this.statementCache = newStatementCache(stmtConfig);
+        this.statementListener = stmtConfig == null ? null : stmtConfig.getStatementListener();
     }
 
     /**
@@ -156,13 +195,41 @@ public abstract class AbstractJdbcAccessor {
         return pmdKnownBroken;
     }
 
+    /**
+     * Returns the cache of prepared statements this accessor reuses, which is
+     * configured by {@link StatementConfiguration.Builder#statementCacheSize(Integer)}.
+     *
+     * @return the statement cache, or <code>null</code> if statements are not cached
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Returns the listener receiving every statement this accessor executes, which is configured by
+     * {@link StatementConfiguration.Builder#statementListener(StatementListener)}.
+     *
+     * @return the listener, or <code>null</code> if statements are not timed
+     */
+    public StatementListener getStatementListener() {
+        return statementListener;
+    }
+
+    private static StatementCache newStatementCache(StatementConfiguration stmtConfig) {
+        if (stmtConfig == null || !stmtConfig.isStatementCacheSizeSet()) {
+            return null;
+        }
+        return new StatementCache(stmtConfig.getStatementCacheSize());
+    }
+
     /**
      * Factory method that creates and initializes a
      * <code>PreparedStatement</code> object for the given SQL.
      * <code>JdbcAccessor</code> methods always call this method to prepare
      * statements for them. Subclasses can override this method to provide
      * special PreparedStatement configuration if needed. This implementation
-     * simply calls <code>conn.prepareStatement(sql)</code>.
+     * simply calls <code>conn.prepareStatement(sql)</code>, or reuses a
+     * statement from the {@link StatementCache} if one is configured.
      *
      * @param conn The <code>Connection</code> used to create the
      *             <code>PreparedStatement</code>
@@ -173,6 +240,14 @@ public abstract class AbstractJdbcAccessor {
     protected PreparedStatement prepareStatement(Connection conn, String sql)
             throws SQLException {
 
+        if (statementCache != null) {
+            PreparedStatement cached = statementCache.borrow(physical(conn), sql,
+                    StatementCache.NO_GENERATED_KEYS_MODE);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         PreparedStatement ps = conn.prepareStatement(sql);
         try {
             configureStatement(ps);
@@ -180,6 +255,11 @@ public abstract class AbstractJdbcAccessor {
             ps.close();
             throw e;
         }
+
+        if (statementCache != null) {
+            statementCache.register(ps, physical(conn), sql, StatementCache.NO_GENERATED_KEYS_MODE);
+            PooledDataSource.track(conn, statementCache);
+        }
         return ps;
     }
 
@@ -191,7 +271,8 @@ public abstract class AbstractJdbcAccessor {
      * special PreparedStatement configuration if needed. This implementation
      * simply calls <code>conn.prepareStatement(sql, returnedKeys)</code>
      * which will result in the ability to retrieve the automatically-generated
-     * keys from an auto_increment column.
+     * keys from an auto_increment column.  A statement from the
+     * {@link StatementCache} is reused if one is configured.
      *
      * @param conn         The <code>Connection</code> used to create the
      *                     <code>PreparedStatement</code>
@@ -204,6 +285,13 @@ public abstract class AbstractJdbcAccessor {
     protected PreparedStatement prepareStatement(Connection conn, String sql, int returnedKeys)
             throws SQLException {
 
+        if (statementCache != null) {
+            PreparedStatement cached = statementCache.borrow(physical(conn), sql, returnedKeys);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         PreparedStatement ps = conn.prepareStatement(sql, returnedKeys);
         try {
             configureStatement(ps);
@@ -211,9 +299,22 @@ public abstract class AbstractJdbcAccessor {
             ps.close();
             throw e;
         }
+
+        if (statementCache != null) {
+            statementCache.register(ps, physical(conn), sql, returnedKeys);
+            PooledDataSource.track(conn, statementCache);
+        }
         return ps;
     }
 
+    /**
+     * Returns the connection underneath a {@link PooledDataSource} handle, which the {@link StatementCache} keys
+     * statements by so that they outlive the handle they were prepared through.
+     */
+    private static Connection physical(Connection conn) {
+        return PooledDataSource.physicalConnection(conn);
+    }
+
     private void configureStatement(Statement stmt) throws SQLException {
 
         if (stmtConfig != null) {
@@ -264,7 +365,9 @@ public abstract class AbstractJdbcAccessor {
      * object. <code>JdbcAccessor</code> methods always call this method to
      * retrieve connections from its DataSource. Subclasses can override this
      * method to provide special <code>Connection</code> configuration if
-     * needed. This implementation simply calls <code>ds.getConnection()</code>.
+     * needed. This implementation returns the connection bound by
+     * {@link #inTransaction(Supplier)} if there is one, and calls
+     * <code>ds.getConnection()</code> otherwise.
      *
      * @return An initialized <code>Connection</code>.
      * @throws SQLRuntimeException if a database access error occurs
@@ -276,11 +379,132 @@ public abstract class AbstractJdbcAccessor {
                     "JdbcAccessor requires a DataSource to be "
                             + "invoked in this way, or a Connection should be passed in");
         }
+        Connection bound = TransactionBinding.connection(this.getDataSource());
+        if (bound != null) {
+            if (statementListener != null) {
+                // acquired once by the transaction, not by the statement
+                acquireNanos.get()[0] = 0;
+            }
+            return bound;
+        }
+        long start = statementListener == null ? 0 : System.nanoTime();
+        Connection conn;
         try {
-            return this.getDataSource().getConnection();
+            conn = this.getDataSource().getConnection();
         } catch (SQLException throwables) {
             throw new SQLRuntimeException(throwables);
         }
+        if (statementListener != null) {
+            acquireNanos.get()[0] = System.nanoTime() - start;
+        }
+        return conn;
+    }
+
+    /**
+     * Starts timing a statement for the statement listener.
+     *
+     * @param kind      The kind of statement.
+     * @param sql       The SQL.
+     * @param params    The replacement parameters, or null for batches.
+     * @param rsh       The handler of the results, or null.
+     * @param closeConn True if the connection was retrieved by {@link #prepareConnection()} for the statement.
+     * @return The event to complete, or null if there is no statement listener.
+     */
+    StatementEvent startStatement(StatementEvent.Kind kind, String sql, Object[] params, ResultSetHandler<?> rsh,
+                                  boolean closeConn) {
+        if (statementListener == null) {
+            return null;
+        }
+        long acquired = 0;
+        if (closeConn) {
+            long[] nanos = acquireNanos.get();
+            acquired = nanos[0];
+            nanos[0] = 0;
+        }
+        return new StatementEvent(kind, sql, params, rsh == null ? null : rsh.getClass(), acquired);
+    }
+
+    /**
+     * Passes a timed statement to the statement listener.
+     *
+     * @param event The event returned by {@link #startStatement}, or null.
+     */
+    void completeStatement(StatementEvent event) {
+        if (event != null) {
+            event.complete(statementListener);
+        }
+    }
+
+    /**
+     * Runs a unit of work in one transaction on one connection.  The
+     * connection is bound to the current thread for the duration of the work,
+     * so every call without a <code>Connection</code> argument of any
+     * accessor using the same <code>DataSource</code> runs on it, and is
+     * committed once when the work returns or rolled back when it throws.
+     * Calls inside the work of another <code>inTransaction</code> on the same
+     * <code>DataSource</code> join the outer transaction.
+     *
+     * @param <T>  The type of the result.
+     * @param work The work to run.
+     * @return The result of the work.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        DataSource dataSource = this.getDataSource();
+        if (dataSource == null) {
+            throw new SQLRuntimeException("JdbcAccessor requires a DataSource to run a transaction");
+        }
+        if (TransactionBinding.connection(dataSource) != null) {
+            return work.get();
+        }
+
+        Connection conn = this.prepareConnection();
+        boolean autoCommit;
+        try {
+            autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+        } catch (SQLException e) {
+            close(conn);
+            throw new SQLRuntimeException(e);
+        }
+
+        TransactionBinding binding = TransactionBinding.bind(dataSource, conn);
+        try {
+            T result = work.get();
+            JdbcUtils.commit(conn);
+            return result;
+        } catch (RuntimeException | Error e) {
+            try {
+                JdbcUtils.rollback(conn);
+            } catch (SQLRuntimeException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        } finally {
+            binding.unbind();
+            try {
+                if (autoCommit) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) { // NOPMD
+                // the connection is closed anyway
+            }
+            try {
+                close(conn);
+            } finally {
+                binding.complete();
+            }
+        }
+    }
+
+    /**
+     * @return True if the current thread runs inside {@link #inTransaction(Supplier)}
+     * on the <code>DataSource</code> of this accessor.
+     */
+    public boolean isInTransaction() {
+        return this.getDataSource() != null && TransactionBinding.connection(this.getDataSource()) != null;
     }
 
     /**
@@ -293,28 +517,56 @@ public abstract class AbstractJdbcAccessor {
      * @throws SQLRuntimeException if a database access error occurs
      */
     public void fillStatement(PreparedStatement stmt, Object... params) {
+        fillStatement(null, stmt, params);
+    }
+
+    /**
+     * Fill the <code>PreparedStatement</code> replacement parameters with the
+     * given objects.  The parameter count and the SQL types of the parameters
+     * the statement reports through its <code>ParameterMetaData</code> are
+     * cached by SQL text, so that they are only looked up on the first
+     * execution of a statement.
+     *
+     * @param sql    The SQL text the statement was prepared from; <code>null</code>
+     *               disables the parameter metadata cache.
+     * @param stmt   PreparedStatement to fill
+     * @param params Query replacement parameters; <code>null</code> is a valid
+     *               value to pass in.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    protected void fillStatement(String sql, PreparedStatement stmt, Object... params) {
 
         try {
             // check the parameter count, if we can
             ParameterMetaData pmd = null;
+            ParameterTypes types = null;
             if (!pmdKnownBroken) {
-                try {
-                    pmd = stmt.getParameterMetaData();
-                    if (pmd == null) { // can be returned by implementations that don't support the method
+                types = sql == null ? null : parameterTypes.get(sql);
+                if (types == null) {
+                    try {
+                        pmd = stmt.getParameterMetaData();
+                        if (pmd == null) { // can be returned by implementations that don't support the method
+                            pmdKnownBroken = true;
+                        } else {
+                            types = new ParameterTypes(pmd.getParameterCount());
+                            if (sql != null) {
+                                parameterTypes.put(sql, types);
+                            }
+                        }
+                    } catch (SQLFeatureNotSupportedException ex) {
                         pmdKnownBroken = true;
-                    } else {
-                        int stmtCount = pmd.getParameterCount();
-                        int paramsCount = params == null ? 0 : params.length;
+                    }
+                    // TODO see DBUTILS-117: would it make sense to catch any other SQLEx types here?
+                }
 
-                        if (stmtCount != paramsCount) {
-                            throw new SQLRuntimeException("Wrong number of parameters: expected "
-                                    + stmtCount + ", was given " + paramsCount);
-                        }
+                if (types != null) {
+                    int paramsCount = params == null ? 0 : params.length;
+
+                    if (types.count != paramsCount) {
+                        throw new SQLRuntimeException("Wrong number of parameters: expected "
+                                + types.count + ", was given " + paramsCount);
                     }
-                } catch (SQLFeatureNotSupportedException ex) {
-                    pmdKnownBroken = true;
                 }
-                // TODO see DBUTILS-117: would it make sense to catch any other SQLEx types here?
             }
 
             // nothing to do here
@@ -339,27 +591,50 @@ public abstract class AbstractJdbcAccessor {
                     // of the actual column type. Oddly, NULL and
                     // OTHER don't work with Oracle's drivers.
                     int sqlType = Types.VARCHAR;
-                    if (!pmdKnownBroken) {
-                        // TODO see DBUTILS-117: does it make sense to catch SQLEx here?
-                        try {
-                            /*
-                             * It's not possible for pmdKnownBroken to change from
-                             * true to false, (once true, always true) so pmd cannot
-                             * be null here.
-                             */
-                            sqlType = pmd.getParameterType(i + 1);
-                        } catch (SQLException e) {
-                            pmdKnownBroken = true;
+                    if (!pmdKnownBroken && types != null) {
+                        sqlType = types.types[i];
+                        if (sqlType == ParameterTypes.UNKNOWN) {
+                            // TODO see DBUTILS-117: does it make sense to catch SQLEx here?
+                            try {
+                                if (pmd == null) {
+                                    pmd = stmt.getParameterMetaData();
+                                }
+                                sqlType = pmd.getParameterType(i + 1);
+                                types.types[i] = sqlType;
+                            } catch (SQLException e) {
+                                pmdKnownBroken = true;
+                                sqlType = Types.VARCHAR;
+                            }
                         }
                     }
                     stmt.setNull(i + 1, sqlType);
                 }
             }
         } catch (SQLException throwables) {
+            if (sql != null && isSchemaChange(throwables)) {
+                parameterTypes.remove(sql);
+            }
             throw new SQLRuntimeException(throwables);
         }
     }
 
+    /**
+     * Whether an exception indicates that the objects a statement refers to
+     * have changed, which makes the cached parameter metadata of the
+     * statement stale.  This implementation checks for the SQLState classes
+     * of syntax errors and access rule violations (42), dynamic SQL errors
+     * (07) and unsupported features (0A, e.g. a cached plan whose result
+     * type changed).
+     *
+     * @param e The exception.
+     * @return true if the parameter metadata of the statement should be looked up again
+     */
+    protected boolean isSchemaChange(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLSyntaxErrorException
+                || state != null && (state.startsWith("42") || state.startsWith("07") || state.startsWith("0A"));
+    }
+
     /**
      * Fill the <code>PreparedStatement</code> replacement parameters with the
      * given object's bean property values.
@@ -454,6 +729,10 @@ public abstract class AbstractJdbcAccessor {
      */
     protected void rethrow(SQLException cause, String sql, Object... params) {
 
+        if (sql != null && isSchemaChange(cause)) {
+            parameterTypes.remove(sql);
+        }
+
         String causeMessage = cause.getMessage();
         if (causeMessage == null) {
             causeMessage = "";
@@ -506,26 +785,43 @@ public abstract class AbstractJdbcAccessor {
     /**
      * Close a <code>Connection</code>. This implementation avoids closing if
      * null and does <strong>not</strong> suppress any exceptions. Subclasses
-     * can override to provide special handling like logging.
+     * can override to provide special handling like logging.  Statements of
+     * the connection held by the {@link StatementCache} are closed first,
+     * unless the connection is a {@link PooledDataSource} handle, which only
+     * returns the connection underneath to its pool; its statements are then
+     * reused by the next handle of that connection, and closed by the pool
+     * when it closes the connection.
      *
      * @param conn Connection to close
      * @throws SQLRuntimeException if a database access error occurs
      * @since DbUtils 1.1
      */
     protected void close(Connection conn) {
+        if (conn != null && TransactionBinding.isBound(conn)) {
+            // closed when the transaction ends
+            return;
+        }
+        if (statementCache != null && conn != null && !PooledDataSource.isHandle(conn)) {
+            statementCache.close(conn);
+        }
         JdbcUtils.close(conn);
     }
 
     /**
      * Close a <code>Statement</code>. This implementation avoids closing if
      * null and does <strong>not</strong> suppress any exceptions. Subclasses
-     * can override to provide special handling like logging.
+     * can override to provide special handling like logging.  Statements
+     * obtained from the {@link StatementCache} are handed back to it instead.
      *
      * @param stmt Statement to close
      * @throws SQLRuntimeException if a database access error occurs
      * @since DbUtils 1.1
      */
     protected void close(Statement stmt) {
+        if (statementCache != null && stmt instanceof PreparedStatement
+                && statementCache.release((PreparedStatement) stmt)) {
+            return;
+        }
         JdbcUtils.close(stmt);
     }
 
@@ -542,4 +838,21 @@ public abstract class AbstractJdbcAccessor {
         JdbcUtils.close(rs);
     }
 
+    /**
+     * The parameter count of a statement and the SQL types of its parameters,
+     * which are looked up lazily as null values are bound.
+     */
+    private static final class ParameterTypes {
+        private static final int UNKNOWN = Integer.MIN_VALUE;
+
+        private final int count;
+        private final int[] types;
+
+        ParameterTypes(int count) {
+            this.count = count;
+            this.types = new int[count];
+            Arrays.fill(this.types, UNKNOWN);
+        }
+    }
+
 }
@@ -6,23 +6,50 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 
 /**
  * Executes SQL queries with pluggable strategies for handling
  * <code>ResultSet</code>s.  This class is thread safe.
+ * <p>
+ * The <code>*Async</code> methods return <code>CompletableFuture</code>s,
+ * so queries can be chained and combined without blocking a thread.  At
+ * most <code>maxInFlight</code> of them run or wait for the executor at a
+ * time; beyond that they fail at once with a
+ * <code>RejectedExecutionException</code> instead of queueing without bound.
+ * Size the limit to the connections the <code>DataSource</code> can hand out.
+ * <p>
+ * An accessor created without an executor runs on one of its own, which
+ * {@link #close()} shuts down.  Closing an accessor on an executor passed
+ * in by the caller does nothing; the caller shuts that executor down.
  *
  * @see ResultSetHandler
  * @since 1.4
  * <p>
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-19 00:59:27
  */
-public class AsyncJdbcAccessor extends AbstractJdbcAccessor {
+public class AsyncJdbcAccessor extends AbstractJdbcAccessor implements AutoCloseable {
 
     private final ExecutorService executorService;
     private final JdbcAccessor jdbcAccessor;
 
+    /**
+     * Whether the executor was created by this accessor, which then shuts it down on {@link #close()}.
+     */
+    private final boolean ownsExecutor;
+
+    /**
+     * The permits of the asynchronous calls in flight, or null when they are not limited.
+     */
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
     /**
      * Constructor for AsyncJdbcAccessor which uses a provided ExecutorService and underlying JdbcAccessor.
      *
@@ -33,6 +60,45 @@ public class AsyncJdbcAccessor extends AbstractJdbcAccessor {
     public AsyncJdbcAccessor(ExecutorService executorService, JdbcAccessor jdbcAccessor) {
         this.executorService = executorService;
         this.jdbcAccessor = jdbcAccessor;
+        this.ownsExecutor = false;
+        this.inFlight = null;
+        this.maxInFlight = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructor for AsyncJdbcAccessor which limits the asynchronous calls in flight.
+     *
+     * @param executorService the {@code ExecutorService} instance used to run JDBC invocations concurrently.
+     * @param jdbcAccessor    the {@code JdbcAccessor} instance to use for the queries.
+     * @param maxInFlight     the maximum number of <code>*Async</code> calls running or waiting for the executor,
+     *                        usually the maximum number of connections of the <code>DataSource</code>.
+     */
+    public AsyncJdbcAccessor(ExecutorService executorService, JdbcAccessor jdbcAccessor, int maxInFlight) {
+        this(executorService, false, jdbcAccessor, maxInFlight);
+    }
+
+    private AsyncJdbcAccessor(ExecutorService executorService, boolean ownsExecutor, JdbcAccessor jdbcAccessor,
+                              int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.executorService = executorService;
+        this.jdbcAccessor = jdbcAccessor;
+        this.ownsExecutor = ownsExecutor;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Constructor for AsyncJdbcAccessor which runs queries on its own {@link #newDefaultExecutor() default
+     * executor} and limits the asynchronous calls in flight.  The executor is shut down by {@link #close()}.
+     *
+     * @param jdbcAccessor the {@code JdbcAccessor} instance to use for the queries.
+     * @param maxInFlight  the maximum number of <code>*Async</code> calls running or waiting for the executor,
+     *                     usually the maximum number of connections of the <code>DataSource</code>.
+     */
+    public AsyncJdbcAccessor(JdbcAccessor jdbcAccessor, int maxInFlight) {
+        this(newDefaultExecutor(), true, jdbcAccessor, maxInFlight);
     }
 
     /**
@@ -87,6 +153,262 @@ public class AsyncJdbcAccessor extends AbstractJdbcAccessor {
         super(ds, pmdKnownBroken);
         this.executorService = executorService;
         this.jdbcAccessor = new JdbcAccessor(ds, pmdKnownBroken);
+        this.ownsExecutor = false;
+        this.inFlight = null;
+        this.maxInFlight = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates an executor with one virtual thread per task when the runtime supports virtual threads, and an
+     * unbounded pool of daemon threads otherwise.  JDBC calls block, so either suits the limit on calls in flight
+     * better than a fixed pool.
+     *
+     * @return A new executor, to be shut down by the caller.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "idealist-async-jdbc");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return The maximum number of <code>*Async</code> calls in flight, <code>Integer.MAX_VALUE</code> when
+     * not limited.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return The number of <code>*Async</code> calls running or waiting for the executor.
+     */
+    public int getInFlight() {
+        return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Shuts down the executor this accessor created for itself.  Calls already submitted still run, later calls
+     * fail with a <code>RejectedExecutionException</code>.  Does nothing if the executor was passed in by the
+     * caller.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Runs a call on the underlying <code>JdbcAccessor</code> asynchronously, counting it against the limit of
+     * calls in flight.  The permit is returned before the future completes, so stages chained on the future can
+     * start further calls.
+     *
+     * @param <T>  The type of the result.
+     * @param call The call to run.
+     * @return A future completing with the result of the call, or exceptionally with its exception.  The future
+     * fails with a <code>RejectedExecutionException</code> when the limit is reached or the executor rejects
+     * the call.
+     */
+    public <T> CompletableFuture<T> supplyAsync(final Function<? super JdbcAccessor, ? extends T> call) {
+        if (inFlight != null && !inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many queries in flight, the limit is " + maxInFlight));
+        }
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executorService.execute(() -> {
+                T result;
+                try {
+                    result = call.apply(jdbcAccessor);
+                } catch (Throwable e) {
+                    release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void release() {
+        if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries asynchronously.
+     *
+     * @param conn   The <code>Connection</code> to use to run the query.  The caller is
+     *               responsible for closing this Connection.
+     * @param sql    The SQL to execute.
+     * @param params An array of query replacement parameters.  Each row in
+     *               this array is one set of batch replacement values.
+     * @return A future of the number of rows updated per statement.
+     * @see #supplyAsync(Function)
+     */
+    public CompletableFuture<int[]> batchAsync(final Connection conn, final String sql, final Object[][] params) {
+        return supplyAsync(jdbc -> jdbc.batch(conn, sql, params));
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries asynchronously.  The
+     * <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * of the underlying <code>JdbcAccessor</code>.
+     *
+     * @param sql    The SQL to execute.
+     * @param params An array of query replacement parameters.  Each row in
+     *               this array is one set of batch replacement values.
+     * @return A future of the number of rows updated per statement.
+     * @see #supplyAsync(Function)
+     */
+    public CompletableFuture<int[]> batchAsync(final String sql, final Object[][] params) {
+        return supplyAsync(jdbc -> jdbc.batch(sql, params));
+    }
+
+    /**
+     * Execute an SQL SELECT query asynchronously.  The caller is responsible
+     * for closing the connection.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param conn   The connection to execute the query in.
+     * @param sql    The query to execute.
+     * @param rsh    The handler that converts the results into an object.
+     * @param params The replacement parameters.
+     * @return A future of the result of the query.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> selectAsync(final Connection conn, final String sql,
+                                                final ResultSetHandler<T> rsh, final Object... params) {
+        return supplyAsync(jdbc -> jdbc.select(conn, sql, rsh, params));
+    }
+
+    /**
+     * Execute an SQL SELECT query asynchronously.  The <code>Connection</code>
+     * is retrieved from the <code>DataSource</code> of the underlying
+     * <code>JdbcAccessor</code>.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param sql    The query to execute.
+     * @param rsh    The handler that converts the results into an object.
+     * @param params The replacement parameters.
+     * @return A future of the result of the query.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> selectAsync(final String sql, final ResultSetHandler<T> rsh,
+                                                final Object... params) {
+        return supplyAsync(jdbc -> jdbc.select(sql, rsh, params));
+    }
+
+    /**
+     * Execute an SQL INSERT, UPDATE, or DELETE query asynchronously.
+     *
+     * @param conn   The connection to use to run the query.
+     * @param sql    The SQL to execute.
+     * @param params The query replacement parameters.
+     * @return A future of the number of rows updated.
+     * @see #supplyAsync(Function)
+     */
+    public CompletableFuture<Integer> updateAsync(final Connection conn, final String sql, final Object... params) {
+        return supplyAsync(jdbc -> jdbc.update(conn, sql, params));
+    }
+
+    /**
+     * Execute an SQL INSERT, UPDATE, or DELETE query asynchronously.  The
+     * <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * of the underlying <code>JdbcAccessor</code>.
+     *
+     * @param sql    The SQL to execute.
+     * @param params The query replacement parameters.
+     * @return A future of the number of rows updated.
+     * @see #supplyAsync(Function)
+     */
+    public CompletableFuture<Integer> updateAsync(final String sql, final Object... params) {
+        return supplyAsync(jdbc -> jdbc.update(sql, params));
+    }
+
+    /**
+     * Executes the given INSERT SQL statement asynchronously.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param conn   The connection to use to run the query.
+     * @param sql    The SQL to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code> of auto-generated keys.
+     * @param params The query replacement parameters.
+     * @return A future of the result of the handler.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> insertAsync(final Connection conn, final String sql,
+                                                final ResultSetHandler<T> rsh, final Object... params) {
+        return supplyAsync(jdbc -> jdbc.insert(conn, sql, rsh, params));
+    }
+
+    /**
+     * Executes the given INSERT SQL statement asynchronously.  The
+     * <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * of the underlying <code>JdbcAccessor</code>.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param sql    The SQL to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code> of auto-generated keys.
+     * @param params The query replacement parameters.
+     * @return A future of the result of the handler.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> insertAsync(final String sql, final ResultSetHandler<T> rsh,
+                                                final Object... params) {
+        return supplyAsync(jdbc -> jdbc.insert(sql, rsh, params));
+    }
+
+    /**
+     * Executes the given batch of INSERT SQL statements asynchronously.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param conn   The connection to use to run the query.
+     * @param sql    The SQL to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code> of auto-generated keys.
+     * @param params An array of query replacement parameters.  Each row in
+     *               this array is one set of batch replacement values.
+     * @return A future of the result of the handler.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> insertBatchAsync(final Connection conn, final String sql,
+                                                     final ResultSetHandler<T> rsh, final Object[][] params) {
+        return supplyAsync(jdbc -> jdbc.insertBatch(conn, sql, rsh, params));
+    }
+
+    /**
+     * Executes the given batch of INSERT SQL statements asynchronously.  The
+     * <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * of the underlying <code>JdbcAccessor</code>.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param sql    The SQL to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code> of auto-generated keys.
+     * @param params An array of query replacement parameters.  Each row in
+     *               this array is one set of batch replacement values.
+     * @return A future of the result of the handler.
+     * @see #supplyAsync(Function)
+     */
+    public <T> CompletableFuture<T> insertBatchAsync(final String sql, final ResultSetHandler<T> rsh,
+                                                     final Object[][] params) {
+        return supplyAsync(jdbc -> jdbc.insertBatch(sql, rsh, params));
     }
 
     /**
@@ -1,9 +1,11 @@
 package idealist.dao;
 
+import java.lang.ref.WeakReference;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.*;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Basic implementation of the <code>RowProcessor</code> interface.
@@ -33,6 +35,11 @@ public class BasicRowProcessor implements RowProcessor {
      */
     private final BeanProcessor convert;
 
+    /**
+     * The column index of the result set each thread read last.
+     */
+    private final ThreadLocal<LastColumns> lastColumns = new ThreadLocal<LastColumns>();
+
     /**
      * BasicRowProcessor constructor.  Bean processing defaults to a
      * BeanProcessor instance.
@@ -134,6 +141,12 @@ public class BasicRowProcessor implements RowProcessor {
      * the entry set of the returned map will return the first column of the ResultSet, then the second and so forth.
      * </p>
      *
+     * <p>
+     * The returned map is immutable.  Rows of the same <code>ResultSet</code> share one column index, which is
+     * built from the <code>ResultSetMetaData</code> on the first row, so each row only holds an array of its
+     * values.
+     * </p>
+     *
      * @param rs ResultSet that supplies the map data
      * @return the newly created Map
      * @throws SQLException if a database access error occurs
@@ -141,118 +154,44 @@ public class BasicRowProcessor implements RowProcessor {
      */
     @Override
     public Map<String, Object> toMap(ResultSet rs) throws SQLException {
-        Map<String, Object> result = new CaseInsensitiveHashMap();
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int cols = rsmd.getColumnCount();
+        RowMap.Columns columns = this.columns(rs);
+        Object[] values = new Object[columns.count];
 
-        for (int i = 1; i <= cols; i++) {
-            String columnName = rsmd.getColumnLabel(i);
-            if (null == columnName || 0 == columnName.length()) {
-                columnName = rsmd.getColumnName(i);
-            }
-            result.put(columnName, rs.getObject(i));
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(i + 1);
         }
 
-        return result;
+        return new RowMap(columns, values);
     }
 
     /**
-     * A Map that converts all keys to lowercase Strings for case insensitive
-     * lookups.  This is needed for the toMap() implementation because
-     * databases don't consistently handle the casing of column names.
+     * Returns the column index of a <code>ResultSet</code>.  The index of the result set the current thread read
+     * last is reused, so that iterating a result set row by row indexes its columns once.
      *
-     * <p>The keys are stored as they are given [BUG #DBUTILS-34], so we maintain
-     * an internal mapping from lowercase keys to the real keys in order to
-     * achieve the case insensitive lookup.
-     *
-     * <p>Note: This implementation does not allow {@code null}
-     * for key, whereas {@link LinkedHashMap} does, because of the code:
-     * <pre>
-     * key.toString().toLowerCase()
-     * </pre>
+     * @param rs The <code>ResultSet</code>.
+     * @return The column index.
+     * @throws SQLException if a database access error occurs
      */
-    private static class CaseInsensitiveHashMap extends LinkedHashMap<String, Object> {
-        /**
-         * Required for serialization support.
-         *
-         * @see java.io.Serializable
-         */
-        private static final long serialVersionUID = -2848100435296897392L;
-        /**
-         * The internal mapping from lowercase keys to the real keys.
-         *
-         * <p>
-         * Any query operation using the key
-         * ({@link #get(Object)}, {@link #containsKey(Object)})
-         * is done in three steps:
-         * <ul>
-         * <li>convert the parameter key to lower case</li>
-         * <li>get the actual key that corresponds to the lower case key</li>
-         * <li>query the map with the actual key</li>
-         * </ul>
-         * </p>
-         */
-        private final Map<String, String> lowerCaseMap = new HashMap<String, String>();
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public boolean containsKey(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.containsKey(realKey);
-            // Possible optimisation here:
-            // Since the lowerCaseMap contains a mapping for all the keys,
-            // we could just do this:
-            // return lowerCaseMap.containsKey(key.toString().toLowerCase());
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public Object get(Object key) {
-            Object realKey = lowerCaseMap.get(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.get(realKey);
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public Object put(String key, Object value) {
-            /*
-             * In order to keep the map and lowerCaseMap synchronized,
-             * we have to remove the old mapping before putting the
-             * new one. Indeed, oldKey and key are not necessaliry equals.
-             * (That's why we call super.remove(oldKey) and not just
-             * super.put(key, value))
-             */
-            Object oldKey = lowerCaseMap.put(key.toLowerCase(Locale.ENGLISH), key);
-            Object oldValue = super.remove(oldKey);
-            super.put(key, value);
-            return oldValue;
+    private RowMap.Columns columns(ResultSet rs) throws SQLException {
+        LastColumns last = lastColumns.get();
+        if (last != null && last.rs.get() == rs) {
+            return last.columns;
         }
+        RowMap.Columns columns = RowMap.Columns.of(rs.getMetaData());
+        lastColumns.set(new LastColumns(rs, columns));
+        return columns;
+    }
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public void putAll(Map<? extends String, ?> m) {
-            for (Map.Entry<? extends String, ?> entry : m.entrySet()) {
-                String key = entry.getKey();
-                Object value = entry.getValue();
-                this.put(key, value);
-            }
-        }
+    /**
+     * The column index of the result set a thread read last, held weakly.
+     */
+    private static final class LastColumns {
+        private final WeakReference<ResultSet> rs;
+        private final RowMap.Columns columns;
 
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public Object remove(Object key) {
-            Object realKey = lowerCaseMap.remove(key.toString().toLowerCase(Locale.ENGLISH));
-            return super.remove(realKey);
+        LastColumns(ResultSet rs, RowMap.Columns columns) {
+            this.rs = new WeakReference<ResultSet>(rs);
+            this.columns = columns;
         }
     }
 
@@ -0,0 +1,206 @@
+package idealist.dao;
+
+import idealist.util.StringUtils;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The named parameters of one {@link ParsedSql} statement, compiled against the properties of one bean class.
+ * <p>
+ * The properties of a class are the getters of its declared instance fields, named by the underscore form of the
+ * field name, as in {@link BeanJdbcAccessor#toMap(Object)}.  They are introspected once per class and resolved to
+ * <code>MethodHandle</code>s, and the getter of every placeholder is resolved once per class and statement, so
+ * binding a bean only invokes those handles in placeholder order.  Placeholders without a property are bound to
+ * <code>null</code>.
+ * <p>
+ * This class is thread safe.
+ */
+final class BeanBinder {
+
+    /**
+     * The maximum number of classes and of class and statement pairs kept.
+     */
+    private static final int CACHE_SIZE = 512;
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Getters as <code>(Object)Object</code> by underscore property name, per bean class.
+     */
+    private static final BoundedCache<Class<?>, Map<String, MethodHandle>> getters = new BoundedCache<>(CACHE_SIZE);
+
+    private static final BoundedCache<Key, BeanBinder> binders = new BoundedCache<>(CACHE_SIZE);
+
+    /**
+     * The getter of each placeholder, null for placeholders without a property.
+     */
+    private final MethodHandle[] handles;
+
+    private BeanBinder(MethodHandle[] handles) {
+        this.handles = handles;
+    }
+
+    /**
+     * Returns the binder of a statement for a bean class, compiling it on the first call.
+     *
+     * @param type   The bean class.
+     * @param parsed The statement.
+     * @return The binder.
+     */
+    static BeanBinder of(Class<?> type, ParsedSql parsed) {
+        return binders.computeIfAbsent(new Key(type, parsed.getOriginalSql()), key -> {
+            Map<String, MethodHandle> properties = getters(type);
+            MethodHandle[] handles = new MethodHandle[parsed.getParameterCount()];
+            for (int i = 0; i < handles.length; i++) {
+                handles[i] = properties.get(parsed.getName(i));
+            }
+            return new BeanBinder(handles);
+        });
+    }
+
+    /**
+     * Resolves the values of the placeholders of a bean, or of a map of values by name.
+     *
+     * @param parsed The statement.
+     * @param bean   The bean or map.
+     * @return The placeholder values.
+     */
+    @SuppressWarnings("unchecked")
+    static Object[] getParameters(ParsedSql parsed, Object bean) {
+        if (bean == null || bean instanceof Map) {
+            return parsed.getParameters((Map<String, Object>) bean);
+        }
+        return of(bean.getClass(), parsed).getParameters(bean, new Object[parsed.getParameterCount()]);
+    }
+
+    /**
+     * Returns a function resolving the placeholder values of each row of a batch into one array reused for the
+     * whole batch.  Rows may be beans or maps of values by name; a <code>null</code> row binds every placeholder
+     * to <code>null</code>.  The binder of the previous row is reused while the rows share a class.
+     *
+     * @param parsed The statement.
+     * @return The function.
+     */
+    static Function<Object, Object[]> binder(ParsedSql parsed) {
+        return new Function<Object, Object[]>() {
+            private final Object[] parameters = new Object[parsed.getParameterCount()];
+            private Class<?> type;
+            private BeanBinder binder;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object[] apply(Object bean) {
+                if (bean == null || bean instanceof Map) {
+                    return parsed.getParameters((Map<String, Object>) bean, parameters);
+                }
+                if (bean.getClass() != type) {
+                    type = bean.getClass();
+                    binder = of(type, parsed);
+                }
+                return binder.getParameters(bean, parameters);
+            }
+        };
+    }
+
+    /**
+     * Reads the property values of a bean by underscore property name.
+     *
+     * @param bean The bean.
+     * @return A new map of the property values.
+     */
+    static Map<String, Object> toMap(Object bean) {
+        Map<String, MethodHandle> properties = getters(bean.getClass());
+        Map<String, Object> map = new HashMap<>(Math.max((int) (properties.size() / 0.75f) + 1, 16));
+        for (Map.Entry<String, MethodHandle> property : properties.entrySet()) {
+            map.put(property.getKey(), get(property.getValue(), bean));
+        }
+        return map;
+    }
+
+    /**
+     * Resolves the values of the placeholders of a bean into an existing array.
+     *
+     * @param bean       The bean, an instance of the class the binder was compiled for.
+     * @param parameters The array receiving the placeholder values.
+     * @return The <code>parameters</code> array.
+     */
+    Object[] getParameters(Object bean, Object[] parameters) {
+        for (int i = 0; i < handles.length; i++) {
+            MethodHandle handle = handles[i];
+            parameters[i] = handle == null ? null : get(handle, bean);
+        }
+        return parameters;
+    }
+
+    private static Object get(MethodHandle getter, Object bean) {
+        try {
+            return (Object) getter.invokeExact(bean);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, MethodHandle> getters(Class<?> type) {
+        return getters.computeIfAbsent(type, BeanBinder::introspect);
+    }
+
+    private static Map<String, MethodHandle> introspect(Class<?> type) {
+        Map<String, MethodHandle> properties = new LinkedHashMap<>();
+        try {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Method method = new PropertyDescriptor(field.getName(), type).getReadMethod();
+                if (method == null) continue;
+                properties.put(StringUtils.toUnderline(field.getName()), lookup.unreflect(method).asType(GETTER_TYPE));
+            }
+        } catch (IntrospectionException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+        return Collections.unmodifiableMap(properties);
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final String sql;
+        private final int hash;
+
+        Key(Class<?> type, String sql) {
+            this.type = type;
+            this.sql = sql;
+            this.hash = type.hashCode() * 31 + sql.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
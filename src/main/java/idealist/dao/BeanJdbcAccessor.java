@@ -1,19 +1,12 @@
 package idealist.dao;
 
 import javax.sql.DataSource;
-import java.beans.IntrospectionException;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.sql.Connection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-
-import idealist.util.StringUtils;
+import java.util.function.Supplier;
 
 /**
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-139 10:53:24
@@ -54,16 +47,40 @@ public class BeanJdbcAccessor {
         return this.jdbcAccessor.getDataSource();
     }
 
+    /**
+     * Runs a unit of work in one transaction on one connection.
+     *
+     * @see JdbcAccessor#inTransaction(Supplier)
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return this.jdbcAccessor.inTransaction(work);
+    }
+
+    public boolean isInTransaction() {
+        return this.jdbcAccessor.isInTransaction();
+    }
+
     public int[] batch(Connection conn, String sql, List<Object> beans) {
-        return this.jdbcAccessor.batch(conn, sql, beans.stream().map(BeanJdbcAccessor::toMap).collect(Collectors.toList()));
+        return this.batch(conn, false, NameParameter.parse(sql), beans.iterator(), beans.size());
     }
 
     public int[] batch(String sql, List<Object> beans) {
-        return this.jdbcAccessor.batch(sql, beans.stream().map(BeanJdbcAccessor::toMap).collect(Collectors.toList()));
+        ParsedSql parsed = NameParameter.parse(sql);
+        Iterator<Object> rows = beans.iterator();
+        return this.batch(this.jdbc().prepareConnection(), true, parsed, rows, beans.size());
+    }
+
+    /**
+     * The SQL and the beans are resolved by the callers before they retrieve a connection, so that invalid
+     * arguments cannot leak a connection this method would have to close.
+     */
+    private int[] batch(Connection conn, boolean closeConn, ParsedSql parsed, Iterator<Object> rows, int size) {
+        return this.jdbc().batch(conn, closeConn, parsed.getSql(), rows, BeanBinder.binder(parsed), Math.max(size, 1));
     }
 
     public <T> T select(Connection conn, String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.select(conn, sql, rsh, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().select(conn, parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> T select(Connection conn, String sql, ResultSetHandler<T> rsh) {
@@ -71,7 +88,8 @@ public class BeanJdbcAccessor {
     }
 
     public <T> T select(String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.select(sql, rsh, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().select(parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> T select(String sql, ResultSetHandler<T> rsh) {
@@ -83,7 +101,8 @@ public class BeanJdbcAccessor {
     }
 
     public int update(Connection conn, String sql, Object bean) {
-        return this.jdbcAccessor.update(conn, sql, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().update(conn, parsed.getSql(), BeanBinder.getParameters(parsed, bean));
     }
 
     public int update(String sql) {
@@ -91,7 +110,8 @@ public class BeanJdbcAccessor {
     }
 
     public int update(String sql, Object bean) {
-        return this.jdbcAccessor.update(sql, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().update(parsed.getSql(), BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> T insert(String sql, ResultSetHandler<T> rsh) {
@@ -99,7 +119,8 @@ public class BeanJdbcAccessor {
     }
 
     public <T> T insert(String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.insert(sql, rsh, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().insert(parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> T insert(Connection conn, String sql, ResultSetHandler<T> rsh) {
@@ -107,19 +128,37 @@ public class BeanJdbcAccessor {
     }
 
     public <T> T insert(Connection conn, String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.insert(conn, sql, rsh, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().insert(conn, parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
-    public <T> T insertBatch(String sql, ResultSetHandler<T> rsh, List<Object> bean) {
-        return this.jdbcAccessor.insertBatch(sql, rsh, bean.stream().map(BeanJdbcAccessor::toMap).collect(Collectors.toList()));
+    public <T> T insertBatch(String sql, ResultSetHandler<T> rsh, List<Object> beans) {
+        if (beans.isEmpty()) {
+            return this.jdbcAccessor.insertBatch(sql, rsh, Collections.emptyList());
+        }
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.insertBatch(this.jdbc().prepareConnection(), true, parsed, rsh, beans);
     }
 
     public <T> T insertBatch(Connection conn, String sql, ResultSetHandler<T> rsh, List<Object> beans) {
-        return this.jdbcAccessor.insertBatch(conn, sql, rsh, beans.stream().map(BeanJdbcAccessor::toMap).collect(Collectors.toList()));
+        if (beans.isEmpty()) {
+            return this.jdbcAccessor.insertBatch(conn, sql, rsh, Collections.emptyList());
+        }
+        return this.insertBatch(conn, false, NameParameter.parse(sql), rsh, beans);
+    }
+
+    /**
+     * @see #batch(Connection, boolean, ParsedSql, Iterator, int)
+     */
+    private <T> T insertBatch(Connection conn, boolean closeConn, ParsedSql parsed, ResultSetHandler<T> rsh,
+                              List<Object> beans) {
+        return this.jdbc().insertBatch(conn, closeConn, parsed.getSql(), rsh, beans.iterator(),
+                BeanBinder.binder(parsed), beans.size()).get(0);
     }
 
     public int execute(Connection conn, String sql, Object bean) {
-        return this.jdbcAccessor.execute(conn, sql, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().execute(conn, parsed.getSql(), BeanBinder.getParameters(parsed, bean));
     }
 
     public int execute(String sql) {
@@ -131,17 +170,31 @@ public class BeanJdbcAccessor {
     }
 
     public int execute(String sql, Object bean) {
-        return this.jdbcAccessor.execute(sql, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().execute(parsed.getSql(), BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> List<T> execute(Connection conn, String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.execute(conn, sql, rsh, toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().execute(conn, parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
     public <T> List<T> execute(String sql, ResultSetHandler<T> rsh, Object bean) {
-        return this.jdbcAccessor.execute(sql, rsh, BeanJdbcAccessor.toMap(bean));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbc().execute(parsed.getSql(), rsh, BeanBinder.getParameters(parsed, bean));
     }
 
+    private JdbcAccessor jdbc() {
+        return this.jdbcAccessor.getJdbcAccessor();
+    }
+
+    /**
+     * Reads the property values of a bean, keyed by the underscore form of the property names.  The getters of
+     * each class are introspected once and cached.
+     *
+     * @param obj The bean, or a map returned as is.
+     * @return The property values, <code>null</code> for a <code>null</code> bean.
+     */
     @SuppressWarnings("unchecked")
     public static Map<String, Object> toMap(Object obj) {
         if (obj == null) {
@@ -152,22 +205,6 @@ public class BeanJdbcAccessor {
             return (Map<String, Object>) obj;
         }
 
-        Map<String, Object> map = new HashMap<>();
-        try {
-            for (Field field : obj.getClass().getDeclaredFields()) {
-                if (Modifier.isStatic(field.getModifiers())) {
-                    continue;
-                }
-                var property = new PropertyDescriptor(field.getName(), obj.getClass());
-                Method method = property.getReadMethod();
-                if (method == null) continue;
-                var name = StringUtils.toUnderline(property.getName());
-                map.put(name, method.invoke(obj));
-            }
-        } catch (IntrospectionException | IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
-
-        return map;
+        return BeanBinder.toMap(obj);
     }
 }
@@ -0,0 +1,439 @@
+package idealist.dao;
+
+import idealist.dao.handlers.columns.BooleanColumnHandler;
+import idealist.dao.handlers.columns.ByteColumnHandler;
+import idealist.dao.handlers.columns.DoubleColumnHandler;
+import idealist.dao.handlers.columns.FloatColumnHandler;
+import idealist.dao.handlers.columns.IntegerColumnHandler;
+import idealist.dao.handlers.columns.LongColumnHandler;
+import idealist.dao.handlers.columns.ShortColumnHandler;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A mapping of one column layout onto one bean class, compiled by a {@link BeanProcessor}.
+ * <p>
+ * All reflective work happens once when the mapper is compiled.  Beans are either created by their no-arg
+ * constructor and populated through their setters, or, for records and classes with a
+ * {@link java.beans.ConstructorProperties} constructor, created by a single constructor call per row whose
+ * argument slots are filled from the mapped columns.  Constructors and setters are resolved to
+ * <code>MethodHandle</code>s, and the primitive default and the type check of every column are precomputed.
+ * Mapping a row then only reads the mapped columns and invokes those handles.
+ * <p>
+ * This class is thread safe.
+ *
+ * @param <T> the bean type
+ */
+final class BeanMapper<T> {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private static final MethodType SPREAD_CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final BeanProcessor processor;
+    private final Class<T> type;
+    /**
+     * The no-arg constructor as <code>()Object</code>, the creator constructor as <code>(Object[])Object</code>,
+     * or null to create beans through {@link BeanProcessor#newInstance(Class)}.
+     */
+    private final MethodHandle constructor;
+    /**
+     * The initial constructor arguments, primitive defaults and nulls, or null for beans populated by setters.
+     */
+    private final Object[] arguments;
+    private final ColumnWriter[] writers;
+
+    private BeanMapper(BeanProcessor processor, Class<T> type, MethodHandle constructor, Object[] arguments,
+                       ColumnWriter[] writers) {
+        this.processor = processor;
+        this.type = type;
+        this.constructor = constructor;
+        this.arguments = arguments;
+        this.writers = writers;
+    }
+
+    /**
+     * Compiles the mapper of a column layout for a bean populated through its setters.
+     *
+     * @param processor        The processor whose column and property processing the mapper uses.
+     * @param type             The bean type.
+     * @param props            The property descriptors of the bean type.
+     * @param columnToProperty The column to property mapping, see
+     *                         {@link BeanProcessor#mapColumnsToProperties(java.sql.ResultSetMetaData, PropertyDescriptor[])}.
+     * @param <T>              The bean type.
+     * @return The compiled mapper.
+     */
+    static <T> BeanMapper<T> compile(BeanProcessor processor, Class<T> type,
+                                     PropertyDescriptor[] props, int[] columnToProperty) {
+        MethodHandle constructor = processor.overridesNewInstance() ? null : constructor(type);
+
+        List<ColumnWriter> writers = new ArrayList<>();
+        for (int i = 1; i < columnToProperty.length; i++) {
+            if (columnToProperty[i] == BeanProcessor.PROPERTY_NOT_FOUND) {
+                continue;
+            }
+            ColumnWriter writer = writer(processor, props[columnToProperty[i]], i);
+            if (writer != null) {
+                writers.add(writer);
+            }
+        }
+
+        return new BeanMapper<>(processor, type, constructor, null, writers.toArray(new ColumnWriter[0]));
+    }
+
+    /**
+     * Compiles the mapper of a column layout for a bean created by a constructor that takes all its properties.
+     *
+     * @param processor        The processor whose column and property processing the mapper uses.
+     * @param type             The bean type.
+     * @param creator          The constructor.
+     * @param props            One property descriptor per constructor parameter, in parameter order.
+     * @param columnToProperty The column to parameter mapping, see
+     *                         {@link BeanProcessor#mapColumnsToProperties(java.sql.ResultSetMetaData, PropertyDescriptor[])}.
+     * @param <T>              The bean type.
+     * @return The compiled mapper.
+     * @throws SQLException if the constructor cannot be accessed.
+     */
+    static <T> BeanMapper<T> compile(BeanProcessor processor, Class<T> type, Constructor<?> creator,
+                                     PropertyDescriptor[] props, int[] columnToProperty) throws SQLException {
+        Class<?>[] paramTypes = creator.getParameterTypes();
+        MethodHandle constructor;
+        try {
+            if (!creator.canAccess(null)) {
+                creator.setAccessible(true);
+            }
+            constructor = lookup.unreflectConstructor(creator)
+                    .asType(MethodType.genericMethodType(paramTypes.length))
+                    .asSpreader(Object[].class, paramTypes.length)
+                    .asType(SPREAD_CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new SQLException("Cannot create " + type.getName() + ": " + e.getMessage());
+        }
+
+        Object[] arguments = new Object[paramTypes.length];
+        for (int i = 0; i < paramTypes.length; i++) {
+            arguments[i] = BeanProcessor.primitiveDefault(paramTypes[i]);
+        }
+
+        // a later column overwrites an earlier one of the same parameter, as a later setter call would
+        ColumnWriter[] slots = new ColumnWriter[paramTypes.length];
+        for (int i = 1; i < columnToProperty.length; i++) {
+            int slot = columnToProperty[i];
+            if (slot != BeanProcessor.PROPERTY_NOT_FOUND) {
+                slots[slot] = new ArgumentWriter(processor, props[slot], paramTypes[slot], i, slot);
+            }
+        }
+        List<ColumnWriter> writers = new ArrayList<>();
+        for (ColumnWriter slot : slots) {
+            if (slot != null) {
+                writers.add(slot);
+            }
+        }
+
+        return new BeanMapper<>(processor, type, constructor, arguments, writers.toArray(new ColumnWriter[0]));
+    }
+
+    /**
+     * Creates a bean from the current row.
+     *
+     * @param rs The result set, positioned on a valid row.
+     * @return The new bean.
+     * @throws SQLException if a database access error occurs or the bean cannot be created.
+     */
+    T toBean(ResultSet rs) throws SQLException {
+        if (arguments == null) {
+            return populate(rs, newInstance());
+        }
+
+        Object[] args = arguments.clone();
+        for (ColumnWriter writer : writers) {
+            writer.write(rs, args);
+        }
+        try {
+            return type.cast((Object) constructor.invokeExact(args));
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Cannot create " + type.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the properties of a bean from the current row.
+     *
+     * @param rs   The result set, positioned on a valid row.
+     * @param bean The bean to populate.
+     * @return The bean.
+     * @throws SQLException if a database access error occurs or a property cannot be set.
+     */
+    T populate(ResultSet rs, T bean) throws SQLException {
+        for (ColumnWriter writer : writers) {
+            writer.write(rs, bean);
+        }
+        return bean;
+    }
+
+    private T newInstance() throws SQLException {
+        if (constructor == null) {
+            return processor.newInstance(type);
+        }
+        try {
+            return type.cast((Object) constructor.invokeExact());
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Cannot create " + type.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+        try {
+            return lookup.findConstructor(type, MethodType.methodType(void.class)).asType(CONSTRUCTOR_TYPE);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // abstract, inaccessible or without a no-arg constructor: let newInstance report it
+            return null;
+        }
+    }
+
+    private static ColumnWriter writer(BeanProcessor processor, PropertyDescriptor prop, int index) {
+        Class<?> propType = prop.getPropertyType();
+        if (processor.overridesGetWriteMethod()) {
+            return new ReflectiveColumnWriter(processor, prop, propType, index);
+        }
+
+        Method setter = prop.getWriteMethod();
+        if (setter == null || setter.getParameterTypes().length != 1) {
+            return null;
+        }
+
+        MethodHandle handle;
+        try {
+            handle = lookup.unreflect(setter);
+        } catch (IllegalAccessException e) {
+            return new ReflectiveColumnWriter(processor, prop, propType, index);
+        }
+
+        Class<?> paramType = setter.getParameterTypes()[0];
+        if (paramType == propType && PrimitiveColumnWriter.supports(processor, paramType)) {
+            return new PrimitiveColumnWriter(processor, prop, index,
+                    handle.asType(MethodType.methodType(void.class, Object.class, paramType)));
+        }
+        return new HandleColumnWriter(processor, prop, propType, index, paramType, handle.asType(SETTER_TYPE));
+    }
+
+    /**
+     * Reads one column and writes it into its bean property.
+     */
+    private abstract static class ColumnWriter {
+        final BeanProcessor processor;
+        final PropertyDescriptor prop;
+        final Class<?> propType;
+        final int index;
+        /**
+         * The value of a primitive property for SQL NULL, null for object properties.
+         */
+        final Object nullValue;
+        /**
+         * Whether columns are read by the processor's own <code>processColumn</code>.
+         */
+        final boolean customRead;
+        /**
+         * The column handler resolved for the property type, or null to read with <code>getObject</code>.
+         */
+        final ColumnHandler handler;
+
+        ColumnWriter(BeanProcessor processor, PropertyDescriptor prop, Class<?> propType, int index) {
+            this.processor = processor;
+            this.prop = prop;
+            this.propType = propType;
+            this.index = index;
+            this.nullValue = propType == null ? null : BeanProcessor.primitiveDefault(propType);
+            this.customRead = processor.overridesProcessColumn();
+            this.handler = propType == null || customRead ? null : processor.columnHandler(propType);
+        }
+
+        /**
+         * Reads the column value as {@link BeanProcessor#processColumn(ResultSet, int, Class)} converts it.
+         */
+        Object read(ResultSet rs) throws SQLException {
+            if (propType == null) {
+                return null;
+            }
+            Object value = customRead
+                    ? processor.processColumn(rs, index, propType)
+                    : BeanProcessor.readColumn(rs, index, propType, handler);
+            return value == null ? nullValue : value;
+        }
+
+        /**
+         * Writes the column value into the bean, or into the constructor arguments of a bean created per row.
+         */
+        abstract void write(ResultSet rs, Object target) throws SQLException;
+    }
+
+    /**
+     * Reads a column, applies the property handlers and checks the result against a parameter type.
+     */
+    private abstract static class TypedColumnWriter extends ColumnWriter {
+        final Class<?> paramType;
+        /**
+         * The parameter type, boxed if primitive, which values must be instances of.
+         */
+        final Class<?> valueType;
+
+        TypedColumnWriter(BeanProcessor processor, PropertyDescriptor prop, Class<?> propType, int index,
+                          Class<?> paramType) {
+            super(processor, prop, propType, index);
+            this.paramType = paramType;
+            this.valueType = MethodType.methodType(paramType).wrap().returnType();
+        }
+
+        Object value(ResultSet rs) throws SQLException {
+            Object value = processor.convertProperty(paramType, read(rs));
+
+            // Don't pass the value on if it isn't the right type
+            if (value != null && !valueType.isInstance(value)) {
+                throw new SQLException(
+                        "Cannot set " + prop.getName() + ": incompatible types, cannot convert "
+                                + value.getClass().getName() + " to " + paramType.getName());
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Writes a property through the setter's <code>MethodHandle</code>.
+     */
+    private static final class HandleColumnWriter extends TypedColumnWriter {
+        private final MethodHandle setter;
+
+        HandleColumnWriter(BeanProcessor processor, PropertyDescriptor prop, Class<?> propType, int index,
+                           Class<?> paramType, MethodHandle setter) {
+            super(processor, prop, propType, index, paramType);
+            this.setter = setter;
+        }
+
+        @Override
+        void write(ResultSet rs, Object bean) throws SQLException {
+            Object value = value(rs);
+            try {
+                setter.invokeExact(bean, value);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException("Cannot set " + prop.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a primitive property straight from the typed <code>ResultSet</code> getter into a primitive setter,
+     * without boxing.  The getters return 0 or false for SQL NULL, which is the primitive default.
+     * <p>
+     * Only used where the boxed path would compute the same value: the processor reads columns with the
+     * built-in column handler of the type, and no property handler other than the built-in ones, which never
+     * match primitive parameters, can convert the value.
+     */
+    private static final class PrimitiveColumnWriter extends ColumnWriter {
+        private static final Map<Class<?>, Class<? extends ColumnHandler>> builtInHandlers = new HashMap<>();
+
+        static {
+            builtInHandlers.put(Integer.TYPE, IntegerColumnHandler.class);
+            builtInHandlers.put(Long.TYPE, LongColumnHandler.class);
+            builtInHandlers.put(Double.TYPE, DoubleColumnHandler.class);
+            builtInHandlers.put(Float.TYPE, FloatColumnHandler.class);
+            builtInHandlers.put(Short.TYPE, ShortColumnHandler.class);
+            builtInHandlers.put(Byte.TYPE, ByteColumnHandler.class);
+            builtInHandlers.put(Boolean.TYPE, BooleanColumnHandler.class);
+        }
+
+        private final MethodHandle setter;
+
+        PrimitiveColumnWriter(BeanProcessor processor, PropertyDescriptor prop, int index, MethodHandle setter) {
+            super(processor, prop, prop.getPropertyType(), index);
+            this.setter = setter;
+        }
+
+        static boolean supports(BeanProcessor processor, Class<?> type) {
+            Class<? extends ColumnHandler> builtIn = builtInHandlers.get(type);
+            if (builtIn == null || processor.overridesProcessColumn() || processor.hasCustomPropertyHandlers()) {
+                return false;
+            }
+            ColumnHandler handler = processor.columnHandler(type);
+            return handler != null && handler.getClass() == builtIn;
+        }
+
+        @Override
+        void write(ResultSet rs, Object bean) throws SQLException {
+            try {
+                if (propType == Integer.TYPE) {
+                    setter.invokeExact(bean, rs.getInt(index));
+                } else if (propType == Long.TYPE) {
+                    setter.invokeExact(bean, rs.getLong(index));
+                } else if (propType == Double.TYPE) {
+                    setter.invokeExact(bean, rs.getDouble(index));
+                } else if (propType == Float.TYPE) {
+                    setter.invokeExact(bean, rs.getFloat(index));
+                } else if (propType == Short.TYPE) {
+                    setter.invokeExact(bean, rs.getShort(index));
+                } else if (propType == Byte.TYPE) {
+                    setter.invokeExact(bean, rs.getByte(index));
+                } else {
+                    setter.invokeExact(bean, rs.getBoolean(index));
+                }
+            } catch (SQLException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new SQLException("Cannot set " + prop.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a property into its constructor argument slot.
+     */
+    private static final class ArgumentWriter extends TypedColumnWriter {
+        private final int slot;
+
+        ArgumentWriter(BeanProcessor processor, PropertyDescriptor prop, Class<?> paramType, int index, int slot) {
+            super(processor, prop, paramType, index, paramType);
+            this.slot = slot;
+        }
+
+        @Override
+        void write(ResultSet rs, Object arguments) throws SQLException {
+            ((Object[]) arguments)[slot] = value(rs);
+        }
+    }
+
+    /**
+     * Writes a property through {@link BeanProcessor#callSetter(Object, PropertyDescriptor, Object)}, for
+     * processors that choose write methods per value or setters that cannot be accessed by handle.
+     */
+    private static final class ReflectiveColumnWriter extends ColumnWriter {
+
+        ReflectiveColumnWriter(BeanProcessor processor, PropertyDescriptor prop, Class<?> propType, int index) {
+            super(processor, prop, propType, index);
+        }
+
+        @Override
+        void write(ResultSet rs, Object bean) throws SQLException {
+            processor.callSetter(bean, prop, read(rs));
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package idealist.dao;
 
+import idealist.dao.handlers.properties.DatePropertyHandler;
+import idealist.dao.handlers.properties.StringEnumPropertyHandler;
+
 import java.beans.BeanInfo;
+import java.beans.ConstructorProperties;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>
@@ -38,6 +45,11 @@ public class BeanProcessor {
      */
     protected static final int PROPERTY_NOT_FOUND = -1;
 
+    /**
+     * The maximum number of compiled bean mappers kept per processor.
+     */
+    private static final int MAPPER_CACHE_SIZE = 512;
+
     /**
      * Set a bean's primitive properties to these defaults when SQL NULL
      * is returned.  These are the same as the defaults that ResultSet get*
@@ -46,18 +58,29 @@ public class BeanProcessor {
     private static final Map<Class<?>, Object> primitiveDefaults = new HashMap<Class<?>, Object>();
 
     /**
-     * ServiceLoader to find <code>ColumnHandler</code> implementations on the classpath.  The iterator for this is
-     * lazy and each time <code>iterator()</code> is called.
+     * <code>ColumnHandler</code> implementations found on the classpath by <code>ServiceLoader</code>, loaded once.
      */
-    // FIXME: I think this instantiates new handlers on each iterator() call. This might be worth caching upfront.
-    private static final ServiceLoader<ColumnHandler> columnHandlers = ServiceLoader.load(ColumnHandler.class);
+    private static final List<ColumnHandler> discoveredColumnHandlers = load(ColumnHandler.class);
 
     /**
-     * ServiceLoader to find <code>PropertyHandler</code> implementations on the classpath.  The iterator for this is
-     * lazy and each time <code>iterator()</code> is called.
+     * <code>PropertyHandler</code> implementations found on the classpath by <code>ServiceLoader</code>, loaded once.
      */
-    // FIXME: I think this instantiates new handlers on each iterator() call. This might be worth caching upfront.
-    private static final ServiceLoader<PropertyHandler> propertyHandlers = ServiceLoader.load(PropertyHandler.class);
+    private static final List<PropertyHandler> discoveredPropertyHandlers = load(PropertyHandler.class);
+
+    /**
+     * Marks property types in {@link #columnHandlerTable} that no <code>ColumnHandler</code> matches.
+     */
+    private static final ColumnHandler NO_COLUMN_HANDLER = new ColumnHandler() {
+        @Override
+        public boolean match(Class<?> propType) {
+            return false;
+        }
+
+        @Override
+        public Object apply(ResultSet rs, int columnIndex) throws SQLException {
+            return rs.getObject(columnIndex);
+        }
+    };
 
     static {
         primitiveDefaults.put(Integer.TYPE, Integer.valueOf(0));
@@ -75,6 +98,56 @@ public class BeanProcessor {
      */
     private final Map<String, String> columnToPropertyOverrides;
 
+    /**
+     * Column handlers in the order they are matched: explicitly registered ones, then discovered ones.
+     */
+    private final List<ColumnHandler> columnHandlers;
+
+    /**
+     * Property handlers in the order they are matched: explicitly registered ones, then discovered ones.
+     */
+    private final List<PropertyHandler> propertyHandlers;
+
+    /**
+     * Whether property handlers other than the built-in ones are in use.
+     */
+    private final boolean customPropertyHandlers;
+
+    /**
+     * The column handler resolved for each property type.
+     */
+    private final Map<Class<?>, ColumnHandler> columnHandlerTable = new ConcurrentHashMap<>();
+
+    /**
+     * Compiled mappers by bean type and column labels.
+     */
+    private final BoundedCache<LayoutKey, BeanMapper<?>> mappers = new BoundedCache<>(MAPPER_CACHE_SIZE);
+
+    /**
+     * Property descriptors by bean type.
+     */
+    private final BoundedCache<Class<?>, PropertyDescriptor[]> descriptors = new BoundedCache<>(MAPPER_CACHE_SIZE);
+
+    /**
+     * Creator constructors by bean type.
+     */
+    private final BoundedCache<Class<?>, Creator> creators = new BoundedCache<>(MAPPER_CACHE_SIZE);
+
+    /**
+     * Case insensitive property name indexes by property descriptor array.  Arrays compare by identity, so
+     * each array handed to <code>mapColumnsToProperties</code> is indexed once.
+     */
+    private final Map<PropertyDescriptor[], Map<String, Integer>> propertyIndexes =
+            Collections.synchronizedMap(new WeakHashMap<PropertyDescriptor[], Map<String, Integer>>());
+
+    private final boolean customNewInstance = this.overrides("newInstance", Class.class);
+
+    private final boolean customProcessColumn =
+            this.overrides("processColumn", ResultSet.class, int.class, Class.class);
+
+    private final boolean customWriteMethod =
+            this.overrides("getWriteMethod", Object.class, PropertyDescriptor.class, Object.class);
+
     /**
      * Constructor for BeanProcessor.
      */
@@ -89,11 +162,33 @@ public class BeanProcessor {
      * @since 1.5
      */
     public BeanProcessor(Map<String, String> columnToPropertyOverrides) {
+        this(columnToPropertyOverrides, Collections.<ColumnHandler>emptyList(),
+                Collections.<PropertyHandler>emptyList());
+    }
+
+    /**
+     * Constructor for BeanProcessor configured with column to property name overrides and explicitly registered
+     * handlers.  Registered handlers are matched in iteration order before the handlers discovered by
+     * <code>ServiceLoader</code>.
+     *
+     * @param columnToPropertyOverrides ResultSet column to bean property name overrides
+     * @param columnHandlers            Column handlers that take precedence over discovered ones
+     * @param propertyHandlers          Property handlers that take precedence over discovered ones
+     */
+    public BeanProcessor(Map<String, String> columnToPropertyOverrides,
+                         Collection<? extends ColumnHandler> columnHandlers,
+                         Collection<? extends PropertyHandler> propertyHandlers) {
         super();
         if (columnToPropertyOverrides == null) {
             throw new IllegalArgumentException("columnToPropertyOverrides map cannot be null");
         }
+        if (columnHandlers == null || propertyHandlers == null) {
+            throw new IllegalArgumentException("handler collections cannot be null");
+        }
         this.columnToPropertyOverrides = columnToPropertyOverrides;
+        this.columnHandlers = concat(columnHandlers, discoveredColumnHandlers);
+        this.propertyHandlers = concat(propertyHandlers, discoveredPropertyHandlers);
+        this.customPropertyHandlers = hasCustomHandler(this.propertyHandlers);
     }
 
     /**
@@ -123,6 +218,12 @@ public class BeanProcessor {
      * <code>null</code> when SQL NULL is returned.  This is the same behavior
      * as the <code>ResultSet</code> get* methods.
      * &lt;/p&gt;
+     * <p>
+     * Records, and classes without a no-arg constructor that annotate a constructor with
+     * {@link ConstructorProperties}, are created by a single call of that constructor, with columns matched
+     * to the record components or the annotated parameter names.  Parameters without a matching column
+     * receive <code>null</code> or the primitive default.
+     * </p>
      *
      * @param <T>  The type of bean to create
      * @param rs   ResultSet that supplies the bean data
@@ -131,8 +232,7 @@ public class BeanProcessor {
      * @throws SQLException if a database access error occurs
      */
     public <T> T toBean(ResultSet rs, Class<? extends T> type) throws SQLException {
-        T bean = this.newInstance(type);
-        return this.populateBean(rs, bean);
+        return this.beanMapper(type, rs.getMetaData(), true).toBean(rs);
     }
 
     /**
@@ -176,36 +276,15 @@ public class BeanProcessor {
             return results;
         }
 
-        PropertyDescriptor[] props = this.propertyDescriptors(type);
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnToProperty = this.mapColumnsToProperties(rsmd, props);
+        BeanMapper<? extends T> mapper = this.beanMapper(type, rs.getMetaData(), true);
 
         do {
-            results.add(this.createBean(rs, type, props, columnToProperty));
+            results.add(mapper.toBean(rs));
         } while (rs.next());
 
         return results;
     }
 
-    /**
-     * Creates a new object and initializes its fields from the ResultSet.
-     *
-     * @param <T>              The type of bean to create
-     * @param rs               The result set.
-     * @param type             The bean type (the return type of the object).
-     * @param props            The property descriptors.
-     * @param columnToProperty The column indices in the result set.
-     * @return An initialized object.
-     * @throws SQLException if a database error occurs.
-     */
-    private <T> T createBean(ResultSet rs, Class<T> type,
-                             PropertyDescriptor[] props, int[] columnToProperty)
-            throws SQLException {
-
-        T bean = this.newInstance(type);
-        return populateBean(rs, bean, props, columnToProperty);
-    }
-
     /**
      * Initializes the fields of the provided bean from the ResultSet.
      *
@@ -216,50 +295,120 @@ public class BeanProcessor {
      * @throws SQLException if a database error occurs.
      */
     public <T> T populateBean(ResultSet rs, T bean) throws SQLException {
-        PropertyDescriptor[] props = this.propertyDescriptors(bean.getClass());
-        ResultSetMetaData rsmd = rs.getMetaData();
-        int[] columnToProperty = this.mapColumnsToProperties(rsmd, props);
-
-        return populateBean(rs, bean, props, columnToProperty);
+        @SuppressWarnings("unchecked")
+        BeanMapper<T> mapper = (BeanMapper<T>) this.beanMapper(bean.getClass(), rs.getMetaData(), false);
+        return mapper.populate(rs, bean);
     }
 
     /**
-     * This method populates a bean from the ResultSet based upon the underlying meta-data.
+     * Returns the compiled mapper of a bean type for the columns of a <code>ResultSet</code>.  Mappers are
+     * compiled once per bean type and ordered column labels and cached, so that
+     * <code>mapColumnsToProperties</code> only runs for result set shapes not seen before.
      *
-     * @param <T>              The type of bean
-     * @param rs               The result set.
-     * @param bean             The bean to be populated.
-     * @param props            The property descriptors.
-     * @param columnToProperty The column indices in the result set.
-     * @return An initialized object.
-     * @throws SQLException if a database error occurs.
+     * @param <T>       The bean type
+     * @param type      The bean type.
+     * @param rsmd      The <code>ResultSetMetaData</code> containing column information.
+     * @param construct Whether the mapper creates beans, in which case records and classes with a
+     *                  creator constructor are created through that constructor.
+     * @return The mapper.
+     * @throws SQLException if a database access error occurs
      */
-    private <T> T populateBean(ResultSet rs, T bean,
-                               PropertyDescriptor[] props, int[] columnToProperty)
+    private <T> BeanMapper<T> beanMapper(Class<T> type, ResultSetMetaData rsmd, boolean construct)
             throws SQLException {
-
-        for (int i = 1; i < columnToProperty.length; i++) {
-
-            if (columnToProperty[i] == PROPERTY_NOT_FOUND) {
-                continue;
+        int cols = rsmd.getColumnCount();
+        String[] labels = new String[cols];
+        for (int col = 1; col <= cols; col++) {
+            labels[col - 1] = columnLabel(rsmd, col);
+        }
+        LayoutKey key = new LayoutKey(type, labels, construct);
+
+        BeanMapper<?> mapper = mappers.get(key);
+        if (mapper == null) {
+            Creator creator = construct ? this.creator(type) : Creator.NONE;
+            if (creator == Creator.NONE) {
+                PropertyDescriptor[] props = this.propertyDescriptors(type);
+                mapper = BeanMapper.compile(this, type, props, this.mapColumnsToProperties(rsmd, props));
+            } else {
+                mapper = BeanMapper.compile(this, type, creator.constructor, creator.props,
+                        this.mapColumnsToProperties(rsmd, creator.props));
             }
+            mappers.put(key, mapper);
+        }
 
-            PropertyDescriptor prop = props[columnToProperty[i]];
-            Class<?> propType = prop.getPropertyType();
+        @SuppressWarnings("unchecked")
+        BeanMapper<T> typed = (BeanMapper<T>) mapper;
+        return typed;
+    }
 
-            Object value = null;
-            if (propType != null) {
-                value = this.processColumn(rs, i, propType);
+    /**
+     * Returns the constructor that beans of a type are created with, cached per type.  Records are created by
+     * their canonical constructor.  Classes without a no-arg constructor are created by their constructor
+     * annotated with {@link ConstructorProperties}, the one with the most parameters if there are several,
+     * unless <code>newInstance</code> is overridden.
+     *
+     * @param type The bean type.
+     * @return The creator, or <code>Creator.NONE</code> to create beans by <code>newInstance</code> and setters.
+     * @throws SQLException if the record components cannot be resolved.
+     */
+    private Creator creator(Class<?> type) throws SQLException {
+        Creator creator = creators.get(type);
+        if (creator != null) {
+            return creator;
+        }
 
-                if (value == null && propType.isPrimitive()) {
-                    value = primitiveDefaults.get(propType);
+        creator = Creator.NONE;
+        if (type.isRecord()) {
+            RecordComponent[] components = type.getRecordComponents();
+            Class<?>[] paramTypes = new Class<?>[components.length];
+            String[] names = new String[components.length];
+            for (int i = 0; i < components.length; i++) {
+                paramTypes[i] = components[i].getType();
+                names[i] = components[i].getName();
+            }
+            try {
+                creator = new Creator(type.getDeclaredConstructor(paramTypes), names);
+            } catch (NoSuchMethodException e) {
+                throw new SQLException("Cannot create " + type.getName() + ": " + e.getMessage());
+            }
+
+        } else if (!this.customNewInstance && !hasNoArgConstructor(type)) {
+            for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+                ConstructorProperties annotation = constructor.getAnnotation(ConstructorProperties.class);
+                if (annotation != null && annotation.value().length == constructor.getParameterCount()
+                        && (creator == Creator.NONE
+                        || constructor.getParameterCount() > creator.constructor.getParameterCount())) {
+                    creator = new Creator(constructor, annotation.value());
                 }
             }
+        }
+
+        creators.put(type, creator);
+        return creator;
+    }
 
-            this.callSetter(bean, prop, value);
+    private static boolean hasNoArgConstructor(Class<?> type) {
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
         }
+    }
 
-        return bean;
+    /**
+     * Returns the label of a column, or its name if the driver reports no label.
+     *
+     * @param rsmd The <code>ResultSetMetaData</code> containing column information.
+     * @param col  The column index, starting at 1.
+     * @return The column label or name.
+     * @throws SQLException if a database access error occurs
+     */
+    static String columnLabel(ResultSetMetaData rsmd, int col) throws SQLException {
+        String columnName = rsmd.getColumnLabel(col);
+        if (null == columnName || 0 == columnName.length()) {
+            columnName = rsmd.getColumnName(col);
+        }
+        return columnName;
     }
 
     /**
@@ -271,7 +420,7 @@ public class BeanProcessor {
      * @param value  The value to pass into the setter.
      * @throws SQLException if an error occurs setting the property.
      */
-    private void callSetter(Object target, PropertyDescriptor prop, Object value)
+    void callSetter(Object target, PropertyDescriptor prop, Object value)
             throws SQLException {
 
         Method setter = getWriteMethod(target, prop, value);
@@ -282,12 +431,7 @@ public class BeanProcessor {
 
         try {
             Class<?> firstParam = setter.getParameterTypes()[0];
-            for (PropertyHandler handler : propertyHandlers) {
-                if (handler.match(firstParam, value)) {
-                    value = handler.apply(firstParam, value);
-                    break;
-                }
-            }
+            value = this.convertProperty(firstParam, value);
 
             // Don't call setter if the value object isn't the right type
             if (this.isCompatibleType(value, firstParam)) {
@@ -313,6 +457,59 @@ public class BeanProcessor {
         }
     }
 
+    /**
+     * Converts a column value with the first <code>PropertyHandler</code> that matches the setter's parameter type.
+     *
+     * @param paramType The setter's parameter type.
+     * @param value     The column value.
+     * @return The converted value, or <code>value</code> if no handler matches.
+     */
+    Object convertProperty(Class<?> paramType, Object value) {
+        for (PropertyHandler handler : propertyHandlers) {
+            if (handler.match(paramType, value)) {
+                return handler.apply(paramType, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value a primitive property is set to when SQL NULL is returned.
+     *
+     * @param type The property type.
+     * @return The default, or <code>null</code> if the type is not primitive.
+     */
+    static Object primitiveDefault(Class<?> type) {
+        return primitiveDefaults.get(type);
+    }
+
+    /**
+     * @return Whether a subclass overrides {@link #newInstance(Class)}, which compiled mappers then call.
+     */
+    boolean overridesNewInstance() {
+        return customNewInstance;
+    }
+
+    /**
+     * @return Whether a subclass overrides {@link #getWriteMethod(Object, PropertyDescriptor, Object)}, which
+     * compiled mappers then call for every value.
+     */
+    boolean overridesGetWriteMethod() {
+        return customWriteMethod;
+    }
+
+    private boolean overrides(String name, Class<?>... parameterTypes) {
+        for (Class<?> c = this.getClass(); c != BeanProcessor.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not declared at this level, look further up
+            }
+        }
+        return false;
+    }
+
     /**
      * ResultSet.getObject() returns an Integer object for an INT column.  The
      * setter method for the property might take an Integer or a primitive int.
@@ -404,7 +601,7 @@ public class BeanProcessor {
     }
 
     /**
-     * Returns a PropertyDescriptor[] for the given Class.
+     * Returns a PropertyDescriptor[] for the given Class.  The array is cached per Class.
      *
      * @param c The Class to retrieve PropertyDescriptors for.
      * @return A PropertyDescriptor[] describing the Class.
@@ -412,6 +609,15 @@ public class BeanProcessor {
      */
     private PropertyDescriptor[] propertyDescriptors(Class<?> c)
             throws SQLException {
+        PropertyDescriptor[] props = descriptors.get(c);
+        if (props == null) {
+            props = this.introspect(c);
+            descriptors.put(c, props);
+        }
+        return props;
+    }
+
+    private PropertyDescriptor[] introspect(Class<?> c) throws SQLException {
         // Introspector caches BeanInfo classes for better performance
         BeanInfo beanInfo = null;
         try {
@@ -435,6 +641,11 @@ public class BeanProcessor {
      * @param rsmd  The <code>ResultSetMetaData</code> containing column
      *              information.
      * @param props The bean property descriptors.
+     * <p>
+     * The result is cached together with the compiled bean mapper, keyed by the bean type and the ordered
+     * column labels, so this method is called once per result set shape rather than once per row.
+     * </p>
+     *
      * @return An int[] with column index to property index mappings.  The 0th
      * element is meaningless because JDBC column indexing starts at 1.
      * @throws SQLException if a database access error occurs
@@ -447,26 +658,38 @@ public class BeanProcessor {
         Arrays.fill(columnToProperty, PROPERTY_NOT_FOUND);
 
         for (int col = 1; col <= cols; col++) {
-            String columnName = rsmd.getColumnLabel(col);
-            if (null == columnName || 0 == columnName.length()) {
-                columnName = rsmd.getColumnName(col);
-            }
+            String columnName = columnLabel(rsmd, col);
             String propertyName = columnToPropertyOverrides.get(columnName);
             if (propertyName == null) {
                 propertyName = columnName;
             }
-            for (int i = 0; i < props.length; i++) {
-
-                if (propertyName.equalsIgnoreCase(props[i].getName())) {
-                    columnToProperty[col] = i;
-                    break;
-                }
-            }
+            columnToProperty[col] = this.propertyIndex(props, propertyName);
         }
 
         return columnToProperty;
     }
 
+    /**
+     * Finds a property by name, ignoring case.  The names of a property descriptor array are indexed on first
+     * use, so repeated lookups take constant time.
+     *
+     * @param props The bean property descriptors.
+     * @param name  The property name.
+     * @return The index of the first property with the given name, or <code>PROPERTY_NOT_FOUND</code>.
+     */
+    protected int propertyIndex(PropertyDescriptor[] props, String name) {
+        Map<String, Integer> index = propertyIndexes.get(props);
+        if (index == null) {
+            index = new HashMap<String, Integer>(props.length * 2);
+            for (int i = 0; i < props.length; i++) {
+                index.putIfAbsent(props[i].getName().toLowerCase(Locale.ENGLISH), i);
+            }
+            propertyIndexes.put(props, index);
+        }
+        Integer i = index.get(name.toLowerCase(Locale.ENGLISH));
+        return i == null ? PROPERTY_NOT_FOUND : i;
+    }
+
     /**
      * Convert a <code>ResultSet</code> column into an object.  Simple
      * implementations could just call <code>rs.getObject(index)</code> while
@@ -493,21 +716,158 @@ public class BeanProcessor {
     protected Object processColumn(ResultSet rs, int index, Class<?> propType)
             throws SQLException {
 
-        Object retval = rs.getObject(index);
+        return readColumn(rs, index, propType, this.columnHandler(propType));
+    }
+
+    /**
+     * Reads a column with a resolved handler: the handler's typed getter, or <code>getObject</code> if no
+     * handler matches the property type.
+     *
+     * @param rs       The <code>ResultSet</code> positioned on a valid row.
+     * @param index    The column index.
+     * @param propType The bean property type.
+     * @param handler  The handler resolved by {@link #columnHandler(Class)}, or <code>null</code>.
+     * @return The column value, <code>null</code> for SQL NULL unless the property type is primitive.
+     * @throws SQLException if a database access error occurs
+     */
+    static Object readColumn(ResultSet rs, int index, Class<?> propType, ColumnHandler handler)
+            throws SQLException {
+
+        if (handler == null) {
+            return rs.getObject(index);
+        }
+
+        Object retval = handler.apply(rs, index);
 
-        if (!propType.isPrimitive() && retval == null) {
+        if (!propType.isPrimitive() && rs.wasNull()) {
             return null;
         }
 
-        for (ColumnHandler handler : columnHandlers) {
-            if (handler.match(propType)) {
-                retval = handler.apply(rs, index);
-                break;
+        return retval;
+    }
+
+    /**
+     * Returns the first column handler that matches a property type.  The handler of each type is resolved once.
+     *
+     * @param propType The bean property type.
+     * @return The handler, or <code>null</code> if none matches.
+     */
+    ColumnHandler columnHandler(Class<?> propType) {
+        ColumnHandler handler = columnHandlerTable.get(propType);
+        if (handler == null) {
+            handler = NO_COLUMN_HANDLER;
+            for (ColumnHandler candidate : columnHandlers) {
+                if (candidate.match(propType)) {
+                    handler = candidate;
+                    break;
+                }
             }
+            columnHandlerTable.put(propType, handler);
         }
+        return handler == NO_COLUMN_HANDLER ? null : handler;
+    }
 
-        return retval;
+    /**
+     * @return Whether property handlers other than the built-in ones, which might convert any value, are in use.
+     */
+    boolean hasCustomPropertyHandlers() {
+        return customPropertyHandlers;
+    }
 
+    /**
+     * @return Whether a subclass overrides {@link #processColumn(ResultSet, int, Class)}, which compiled mappers
+     * then call instead of dispatching to the resolved column handler.
+     */
+    boolean overridesProcessColumn() {
+        return customProcessColumn;
+    }
+
+    private static <H> List<H> load(Class<H> service) {
+        List<H> handlers = new ArrayList<H>();
+        for (H handler : ServiceLoader.load(service)) {
+            handlers.add(handler);
+        }
+        return Collections.unmodifiableList(handlers);
+    }
+
+    private static boolean hasCustomHandler(List<PropertyHandler> handlers) {
+        for (PropertyHandler handler : handlers) {
+            if (handler.getClass() != DatePropertyHandler.class
+                    && handler.getClass() != StringEnumPropertyHandler.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <H> List<H> concat(Collection<? extends H> registered, List<H> discovered) {
+        List<H> handlers = new ArrayList<H>(registered.size() + discovered.size());
+        handlers.addAll(registered);
+        handlers.addAll(discovered);
+        return Collections.unmodifiableList(handlers);
+    }
+
+    /**
+     * A constructor that takes all properties of a bean, with one synthetic property descriptor per parameter
+     * so that columns are matched to parameters by <code>mapColumnsToProperties</code>.
+     */
+    private static final class Creator {
+        static final Creator NONE = new Creator();
+
+        final Constructor<?> constructor;
+        final PropertyDescriptor[] props;
+
+        private Creator() {
+            this.constructor = null;
+            this.props = null;
+        }
+
+        Creator(Constructor<?> constructor, String[] names) throws SQLException {
+            this.constructor = constructor;
+            this.props = new PropertyDescriptor[names.length];
+            try {
+                for (int i = 0; i < names.length; i++) {
+                    this.props[i] = new PropertyDescriptor(names[i], null, null);
+                }
+            } catch (IntrospectionException e) {
+                throw new SQLException("Bean introspection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Key of a compiled mapper: a bean type, the ordered column labels of a result set and whether the mapper
+     * creates beans or populates existing ones.
+     */
+    private static final class LayoutKey {
+        private final Class<?> type;
+        private final String[] labels;
+        private final boolean construct;
+        private final int hash;
+
+        LayoutKey(Class<?> type, String[] labels, boolean construct) {
+            this.type = type;
+            this.labels = labels;
+            this.construct = construct;
+            this.hash = (type.hashCode() * 31 + Arrays.hashCode(labels)) * 31 + (construct ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LayoutKey)) {
+                return false;
+            }
+            LayoutKey other = (LayoutKey) o;
+            return type == other.type && construct == other.construct && Arrays.equals(labels, other.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
 }
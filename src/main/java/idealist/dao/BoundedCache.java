@@ -0,0 +1,149 @@
+package idealist.dao;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A concurrent map with an upper bound on its size.  Reads never lock; when an insertion pushes the
+ * cache over its maximum size, arbitrary other entries are evicted.  Hits, misses and evictions are counted.
+ * <p>
+ * This class is thread safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedCache<K, V> {
+
+    private final ConcurrentHashMap<K, V> map;
+    private final int maxSize;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructor for BoundedCache.
+     *
+     * @param maxSize The maximum number of entries, must be positive.
+     */
+    public BoundedCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 256));
+    }
+
+    /**
+     * Returns the cached value for a key.
+     *
+     * @param key The key.
+     * @return The cached value, or <code>null</code> if there is none.
+     */
+    public V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value for a key, loading and caching it on a miss.
+     *
+     * @param key    The key.
+     * @param loader Computes the value of a missing key; must not return <code>null</code>.
+     * @return The cached or loaded value.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = map.get(key);
+        if (value != null) {
+            hitCount.increment();
+            return value;
+        }
+        missCount.increment();
+        value = map.computeIfAbsent(key, loader);
+        evictIfFull(key);
+        return value;
+    }
+
+    /**
+     * Caches a value.
+     *
+     * @param key   The key.
+     * @param value The value, not <code>null</code>.
+     */
+    public void put(K key, V value) {
+        map.put(key, value);
+        evictIfFull(key);
+    }
+
+    /**
+     * Removes the cached value of a key.
+     *
+     * @param key The key.
+     * @return The removed value, or <code>null</code> if there was none.
+     */
+    public V remove(K key) {
+        return map.remove(key);
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return The number of cached values.
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * @return The maximum number of cached values.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of lookups that found a cached value.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of lookups that found no cached value.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The number of values evicted to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void evictIfFull(K keep) {
+        if (map.size() <= maxSize) {
+            return;
+        }
+        Iterator<K> it = map.keySet().iterator();
+        while (map.size() > maxSize && it.hasNext()) {
+            K key = it.next();
+            if (!key.equals(keep)) {
+                it.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+}
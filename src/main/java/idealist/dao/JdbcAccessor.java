@@ -2,8 +2,21 @@ package idealist.dao;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Executes SQL queries with pluggable strategies for handling
@@ -15,11 +28,24 @@ import java.util.List;
  */
 public class JdbcAccessor extends AbstractJdbcAccessor {
 
+    /**
+     * The cache of {@link #selectCached(String, ResultSetHandler, Object...)}, or null.
+     */
+    private final QueryCache queryCache;
+
+    /**
+     * The invalidations to repeat when {@link #commit(Connection)} commits a caller-managed connection that is not
+     * in auto-commit mode, by connection.
+     */
+    private final Map<Connection, Map<Object, Runnable>> pendingInvalidations =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     /**
      * Constructor for JdbcAccessor.
      */
     public JdbcAccessor() {
         super();
+        this.queryCache = null;
     }
 
     /**
@@ -31,6 +57,7 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(boolean pmdKnownBroken) {
         super(pmdKnownBroken);
+        this.queryCache = null;
     }
 
     /**
@@ -43,6 +70,7 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(DataSource ds) {
         super(ds);
+        this.queryCache = null;
     }
 
     /**
@@ -53,6 +81,7 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(StatementConfiguration stmtConfig) {
         super(stmtConfig);
+        this.queryCache = null;
     }
 
     /**
@@ -67,6 +96,7 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(DataSource ds, boolean pmdKnownBroken) {
         super(ds, pmdKnownBroken);
+        this.queryCache = null;
     }
 
     /**
@@ -80,6 +110,7 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(DataSource ds, StatementConfiguration stmtConfig) {
         super(ds, stmtConfig);
+        this.queryCache = null;
     }
 
     /**
@@ -95,6 +126,38 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
      */
     public JdbcAccessor(DataSource ds, boolean pmdKnownBroken, StatementConfiguration stmtConfig) {
         super(ds, pmdKnownBroken, stmtConfig);
+        this.queryCache = null;
+    }
+
+    /**
+     * Constructor for JdbcAccessor that takes a <code>DataSource</code>, a <code>StatementConfiguration</code>, and
+     * a <code>QueryCache</code> for {@link #selectCached(String, ResultSetHandler, Object...)}.  Methods that do not
+     * take a <code>Connection</code> parameter will retrieve connections from this <code>DataSource</code>.
+     * <p>
+     * Updates, inserts and batches through this accessor invalidate the cached results of the tables they write,
+     * and calls of stored procedures invalidate all cached results.  Writes through other accessors or other
+     * applications are only seen once the cached results expire.
+     * <p>
+     * Writes on a connection that is not in auto-commit mode invalidate the cache before they are committed, so a
+     * query cached on another connection in the meantime may hold the old rows.  Inside
+     * {@link #inTransaction(java.util.function.Supplier)} the tables are invalidated again after the commit.  A
+     * caller managing such a connection itself should commit it through {@link #commit(Connection)}, which does the
+     * same; otherwise the results cached before the commit stay until they expire.
+     *
+     * @param ds         The <code>DataSource</code> to retrieve connections from.
+     * @param stmtConfig The configuration to apply to statements when they are prepared, may be null.
+     * @param queryCache The cache of query results.
+     */
+    public JdbcAccessor(DataSource ds, StatementConfiguration stmtConfig, QueryCache queryCache) {
+        super(ds, stmtConfig);
+        this.queryCache = queryCache;
+    }
+
+    /**
+     * @return The cache of {@link #selectCached(String, ResultSetHandler, Object...)}, or null.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
     }
 
     /**
@@ -164,27 +227,306 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         PreparedStatement stmt = null;
         int[] rows = null;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.BATCH, sql, null, null, closeConn);
         try {
             stmt = this.prepareStatement(conn, sql);
 
             for (int i = 0; i < params.length; i++) {
-                this.fillStatement(stmt, params[i]);
+                this.fillStatement(sql, stmt, params[i]);
                 stmt.addBatch();
             }
+            if (event != null) {
+                event.prepared();
+            }
             rows = stmt.executeBatch();
+            if (event != null) {
+                event.executed(rows);
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, (Object[]) params);
         } finally {
+            this.invalidate(conn, sql);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return rows;
     }
 
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters.  Rows are added to a single
+     * <code>PreparedStatement</code> and the batch is executed every
+     * <code>chunkSize</code> rows, so only one chunk is held by the driver at
+     * a time.
+     *
+     * @param conn      The Connection to use to run the query.  The caller is
+     *                  responsible for closing this Connection.
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per statement, in input order.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public int[] batch(Connection conn, String sql, Iterator<Object[]> params, int chunkSize) {
+        return this.batch(conn, false, sql, params, chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters.  The <code>Connection</code> is retrieved from
+     * the <code>DataSource</code> set in the constructor.  This
+     * <code>Connection</code> must be in auto-commit mode or the update will
+     * not be saved.
+     *
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per statement, in input order.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public int[] batch(String sql, Iterator<Object[]> params, int chunkSize) {
+        Connection conn = this.prepareConnection();
+
+        return this.batch(conn, true, sql, params, chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters.  The stream is consumed but not closed.
+     *
+     * @param conn      The Connection to use to run the query.  The caller is
+     *                  responsible for closing this Connection.
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per statement, in input order.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public int[] batch(Connection conn, String sql, Stream<Object[]> params, int chunkSize) {
+        return this.batch(conn, false, sql, params == null ? null : params.iterator(), chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters.  The stream is consumed but not closed.  The
+     * <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * set in the constructor.  This <code>Connection</code> must be in
+     * auto-commit mode or the update will not be saved.
+     *
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per statement, in input order.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public int[] batch(String sql, Stream<Object[]> params, int chunkSize) {
+        Connection conn = this.prepareConnection();
+
+        return this.batch(conn, true, sql, params == null ? null : params.iterator(), chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters, and return the total number of rows updated
+     * instead of one count per statement.  Use this for loads too large to
+     * keep an update count per row.
+     *
+     * @param conn      The Connection to use to run the query.  The caller is
+     *                  responsible for closing this Connection.
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The total number of rows updated.  Statements for which the driver
+     * reports {@link Statement#SUCCESS_NO_INFO} are not counted.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public long batchTotal(Connection conn, String sql, Iterator<Object[]> params, int chunkSize) {
+        return this.batchTotal(conn, false, sql, params, chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, streaming the
+     * replacement parameters, and return the total number of rows updated.
+     * The <code>Connection</code> is retrieved from the <code>DataSource</code>
+     * set in the constructor.  This <code>Connection</code> must be in
+     * auto-commit mode or the update will not be saved.
+     *
+     * @param sql       The SQL to execute.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The total number of rows updated.  Statements for which the driver
+     * reports {@link Statement#SUCCESS_NO_INFO} are not counted.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #batchTotal(Connection, String, Iterator, int)
+     */
+    public long batchTotal(String sql, Iterator<Object[]> params, int chunkSize) {
+        Connection conn = this.prepareConnection();
+
+        return this.batchTotal(conn, true, sql, params, chunkSize);
+    }
+
+    /**
+     * Runs a streaming batch and collects the update counts of all chunks.
+     */
+    private int[] batch(Connection conn, boolean closeConn, String sql, Iterator<Object[]> params, int chunkSize) {
+        return this.batch(conn, closeConn, sql, params, Function.identity(), chunkSize);
+    }
+
+    /**
+     * Runs a streaming batch and sums the update counts of all chunks.
+     */
+    private long batchTotal(Connection conn, boolean closeConn, String sql, Iterator<Object[]> params, int chunkSize) {
+        return this.batchTotal(conn, closeConn, sql, params, Function.identity(), chunkSize);
+    }
+
+    /**
+     * Runs a streaming batch of rows of any type and collects the update
+     * counts of all chunks.
+     *
+     * @param conn      The connection to use for the batch call.
+     * @param closeConn True if the connection should be closed, false otherwise.
+     * @param sql       The SQL statement to execute.
+     * @param rows      The batch rows.
+     * @param binder    Turns a row into its query replacement parameters just
+     *                  before it is bound.  The array is not kept, so the binder
+     *                  may return the same array for every row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per batch row.
+     */
+    <R> int[] batch(Connection conn, boolean closeConn, String sql, Iterator<? extends R> rows,
+                    Function<? super R, Object[]> binder, int chunkSize) {
+        UpdateCounts counts = new UpdateCounts();
+        this.batch(conn, closeConn, sql, StatementCache.NO_GENERATED_KEYS_MODE, null, rows, binder, chunkSize, counts);
+        return counts.toArray();
+    }
+
+    /**
+     * Runs a streaming batch of rows of any type and sums the update counts
+     * of all chunks.
+     *
+     * @see #batch(Connection, boolean, String, Iterator, Function, int)
+     */
+    <R> long batchTotal(Connection conn, boolean closeConn, String sql, Iterator<? extends R> rows,
+                        Function<? super R, Object[]> binder, int chunkSize) {
+        long[] total = new long[1];
+        this.batch(conn, closeConn, sql, StatementCache.NO_GENERATED_KEYS_MODE, null, rows, binder, chunkSize, (stmt, counts) -> {
+            for (int count : counts) {
+                if (count > 0) {
+                    total[0] += count;
+                }
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Executes a streaming batch after checking the parameters to ensure
+     * nothing is null.  One <code>PreparedStatement</code> is filled row by
+     * row and executed every <code>chunkSize</code> rows.
+     *
+     * @param conn         The connection to use for the batch call.
+     * @param closeConn    True if the connection should be closed, false otherwise.
+     * @param sql          The SQL statement to execute.
+     * @param returnedKeys The generated keys mode, or {@link StatementCache#NO_GENERATED_KEYS_MODE}.
+     * @param rsh          The handler of the generated keys, or null.
+     * @param rows         The batch rows.
+     * @param binder       Turns a row into its query replacement parameters.
+     * @param chunkSize    The number of rows to execute per JDBC batch.
+     * @param listener     Receives the statement and update counts after each chunk.
+     * @throws SQLRuntimeException If there are database or parameter errors.
+     */
+    private <R> void batch(Connection conn, boolean closeConn, String sql, int returnedKeys, ResultSetHandler<?> rsh,
+                           Iterator<? extends R> rows, Function<? super R, Object[]> binder,
+                           int chunkSize, ChunkListener listener) {
+        if (conn == null) {
+            throw new SQLRuntimeException("Null connection");
+        }
+
+        if (sql == null) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Null SQL statement");
+        }
+
+        if (rows == null) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Null parameters. If parameters aren't need, pass an empty iterator.");
+        }
+
+        if (chunkSize <= 0) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Chunk size must be positive: " + chunkSize);
+        }
+
+        PreparedStatement stmt = null;
+        Object[] params = null;
+        StatementEvent event = this.startStatement(returnedKeys == StatementCache.NO_GENERATED_KEYS_MODE
+                ? StatementEvent.Kind.BATCH : StatementEvent.Kind.INSERT_BATCH, sql, null, rsh, closeConn);
+        try {
+            if (returnedKeys == StatementCache.NO_GENERATED_KEYS_MODE) {
+                stmt = this.prepareStatement(conn, sql);
+            } else {
+                stmt = this.prepareStatement(conn, sql, returnedKeys);
+            }
+
+            int pending = 0;
+            while (rows.hasNext()) {
+                params = binder.apply(rows.next());
+                this.fillStatement(sql, stmt, params);
+                stmt.addBatch();
+                if (++pending == chunkSize) {
+                    this.chunkExecuted(stmt, event, listener);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                this.chunkExecuted(stmt, event, listener);
+            }
+            if (event != null) {
+                event.executed((int[]) null);
+            }
+
+        } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
+            this.rethrow(e, sql, params);
+        } finally {
+            this.invalidate(conn, sql);
+            close(stmt);
+            if (closeConn) {
+                close(conn);
+            }
+            this.completeStatement(event);
+        }
+    }
+
+    private void chunkExecuted(PreparedStatement stmt, StatementEvent event, ChunkListener listener)
+            throws SQLException {
+        int[] counts = stmt.executeBatch();
+        if (event != null) {
+            event.chunkExecuted(counts);
+        }
+        listener.chunkExecuted(stmt, counts);
+    }
+
     /**
      * Execute an SQL SELECT query with a single replacement parameter. The
      * caller is responsible for closing the connection.
@@ -333,6 +675,65 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
         return this.<T>select(conn, true, sql, rsh, (Object[]) null);
     }
 
+    /**
+     * Executes the given SELECT SQL query and returns a result object,
+     * served from the <code>QueryCache</code> of this accessor when the same
+     * query with the same handler and parameters was run before.  Reuse the
+     * handler instance, and do not modify the result, which is shared with
+     * other callers.
+     * The <code>Connection</code> is retrieved from the
+     * <code>DataSource</code> set in the constructor.  Inside
+     * {@link #inTransaction(java.util.function.Supplier)}, or without a
+     * cache, the query is always run.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param sql    The SQL statement to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code>.
+     * @param params Initialize the PreparedStatement's IN parameters with
+     *               this array.
+     * @return An object generated by the handler.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public <T> T selectCached(String sql, ResultSetHandler<T> rsh, Object... params) {
+        if (queryCache == null || this.isInTransaction()) {
+            return this.select(sql, rsh, params);
+        }
+        return queryCache.get(sql, rsh, params, () -> this.select(sql, rsh, params));
+    }
+
+    /**
+     * Executes the given SELECT SQL query and returns a result object,
+     * served from the <code>QueryCache</code> of this accessor when the same
+     * query with the same handler and parameters was run before.  Reuse the
+     * handler instance, and do not modify the result, which is shared with
+     * other callers.  When the connection is not in auto-commit mode, or
+     * without a cache, the query is always run.
+     *
+     * @param <T>    The type of object that the handler returns
+     * @param conn   The connection to execute the query in.
+     * @param sql    The SQL statement to execute.
+     * @param rsh    The handler used to create the result object from
+     *               the <code>ResultSet</code>.
+     * @param params Initialize the PreparedStatement's IN parameters with
+     *               this array.
+     * @return An object generated by the handler.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public <T> T selectCached(Connection conn, String sql, ResultSetHandler<T> rsh, Object... params) {
+        if (queryCache == null || conn == null || TransactionBinding.isBound(conn)) {
+            return this.<T>select(conn, false, sql, rsh, params);
+        }
+        try {
+            if (!conn.getAutoCommit()) {
+                return this.<T>select(conn, false, sql, rsh, params);
+            }
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+        return queryCache.get(sql, rsh, params, () -> this.<T>select(conn, false, sql, rsh, params));
+    }
+
     /**
      * Calls query after checking the parameters to ensure nothing is null.
      *
@@ -366,14 +767,28 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         T result = null;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.SELECT, sql, params, rsh, closeConn);
 
         try {
             stmt = this.prepareStatement(conn, sql);
-            this.fillStatement(stmt, params);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
             rs = this.wrap(stmt.executeQuery());
+            if (event != null) {
+                event.executed();
+                rs = event.counting(rs);
+            }
             result = rsh.handle(rs);
+            if (event != null) {
+                event.fetched();
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, params);
 
         } finally {
@@ -384,12 +799,135 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
                 if (closeConn) {
                     close(conn);
                 }
+                this.completeStatement(event);
             }
         }
 
         return result;
     }
 
+    /**
+     * Executes the given SELECT SQL query and returns its rows as a lazy
+     * <code>Stream</code>.  Rows are fetched from the open cursor on demand,
+     * in batches of the configured fetch size, so the result never has to fit
+     * into memory.  Only <code>ResultSet.next()</code> is used, which works
+     * with forward-only cursors.  The caller is responsible for closing the
+     * connection.
+     * <p>
+     * The statement and result set stay open until the stream is exhausted or
+     * closed, so the stream should be used in a try-with-resources block:
+     * <pre>
+     * try (Stream&lt;Order&gt; orders = accessor.stream(conn, sql, rs -&gt; toOrder(rs))) {
+     *     orders.forEach(exporter::write);
+     * }
+     * </pre>
+     * The statement listener receives the query when the stream is closed;
+     * its fetch phase covers the time the stream was consumed.
+     *
+     * @param <T>    The type of object that the mapper returns
+     * @param conn   The connection to execute the query in.
+     * @param sql    The query to execute.
+     * @param mapper The mapper that converts each row into an object.
+     * @param params The replacement parameters.
+     * @return A sequential, ordered stream of the mapped rows.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public <T> Stream<T> stream(Connection conn, String sql, RowMapper<T> mapper, Object... params) {
+        return this.stream(conn, false, sql, mapper, params);
+    }
+
+    /**
+     * Executes the given SELECT SQL query and returns its rows as a lazy
+     * <code>Stream</code>.  The <code>Connection</code> is retrieved from the
+     * <code>DataSource</code> set in the constructor and closed together with
+     * the stream.
+     *
+     * @param <T>    The type of object that the mapper returns
+     * @param sql    The SQL statement to execute.
+     * @param mapper The mapper that converts each row into an object.
+     * @param params Initialize the PreparedStatement's IN parameters with
+     *               this array.
+     * @return A sequential, ordered stream of the mapped rows.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #stream(Connection, String, RowMapper, Object...)
+     */
+    public <T> Stream<T> stream(String sql, RowMapper<T> mapper, Object... params) {
+        Connection conn = this.prepareConnection();
+
+        return this.stream(conn, true, sql, mapper, params);
+    }
+
+    /**
+     * Opens the cursor of a streaming query after checking the parameters to
+     * ensure nothing is null.
+     *
+     * @param conn      The connection to use for the query call.
+     * @param closeConn True if the connection should be closed with the stream, false otherwise.
+     * @param sql       The SQL statement to execute.
+     * @param mapper    The mapper that converts each row into an object.
+     * @param params    The query replacement parameters.
+     * @return The stream of mapped rows.
+     * @throws SQLRuntimeException If there are database or parameter errors.
+     */
+    private <T> Stream<T> stream(Connection conn, boolean closeConn, String sql, RowMapper<T> mapper, Object... params) {
+        if (conn == null) {
+            throw new SQLRuntimeException("Null connection");
+        }
+
+        if (sql == null) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Null SQL statement");
+        }
+
+        if (mapper == null) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Null RowMapper");
+        }
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        RowSpliterator<T> rows = null;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.SELECT, sql, params, null, closeConn);
+
+        try {
+            stmt = this.prepareStatement(conn, sql);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
+            rs = this.wrap(stmt.executeQuery());
+            if (event != null) {
+                event.executed();
+            }
+            rows = new RowSpliterator<>(conn, closeConn, stmt, rs, mapper, sql, params, event);
+
+        } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
+            this.rethrow(e, sql, params);
+
+        } finally {
+            if (rows == null) {
+                try {
+                    close(rs);
+                } finally {
+                    close(stmt);
+                    if (closeConn) {
+                        close(conn);
+                    }
+                    this.completeStatement(event);
+                }
+            }
+        }
+
+        return StreamSupport.stream(rows, false).onClose(rows::close);
+    }
+
     /**
      * Execute an SQL INSERT, UPDATE, or DELETE query without replacement
      * parameters.
@@ -508,20 +1046,32 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         PreparedStatement stmt = null;
         int rows = 0;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.UPDATE, sql, params, null, closeConn);
 
         try {
             stmt = this.prepareStatement(conn, sql);
-            this.fillStatement(stmt, params);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
             rows = stmt.executeUpdate();
+            if (event != null) {
+                event.executed(rows);
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, params);
 
         } finally {
+            this.invalidate(conn, sql);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return rows;
@@ -630,20 +1180,35 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         PreparedStatement stmt = null;
         T generatedKeys = null;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.INSERT, sql, params, rsh, closeConn);
 
         try {
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            this.fillStatement(stmt, params);
-            stmt.executeUpdate();
+            stmt = this.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
+            int rows = stmt.executeUpdate();
+            if (event != null) {
+                event.executed();
+            }
             ResultSet resultSet = stmt.getGeneratedKeys();
             generatedKeys = rsh.handle(resultSet);
+            if (event != null) {
+                event.fetched(rows);
+            }
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, params);
         } finally {
+            this.invalidate(conn, sql);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return generatedKeys;
@@ -719,29 +1284,142 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         PreparedStatement stmt = null;
         T generatedKeys = null;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.INSERT_BATCH, sql, null, rsh, closeConn);
         try {
             stmt = this.prepareStatement(conn, sql, Statement.RETURN_GENERATED_KEYS);
 
             for (int i = 0; i < params.length; i++) {
-                this.fillStatement(stmt, params[i]);
+                this.fillStatement(sql, stmt, params[i]);
                 stmt.addBatch();
             }
-            stmt.executeBatch();
+            if (event != null) {
+                event.prepared();
+            }
+            int[] rows = stmt.executeBatch();
+            if (event != null) {
+                event.executed();
+            }
             ResultSet rs = stmt.getGeneratedKeys();
             generatedKeys = rsh.handle(rs);
+            if (event != null) {
+                event.fetched(StatementEvent.sum(rows));
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, (Object[]) params);
         } finally {
+            this.invalidate(conn, sql);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return generatedKeys;
     }
 
+    /**
+     * Executes the given batch of INSERT SQL statements, streaming the
+     * replacement parameters.  The batch is executed every
+     * <code>chunkSize</code> rows and the auto-generated keys of each chunk
+     * are passed to the handler.
+     *
+     * @param <T>       The type of object that the handler returns
+     * @param conn      The connection to use to run the query.
+     * @param sql       The SQL to execute.
+     * @param rsh       The handler used to create the result object from
+     *                  the <code>ResultSet</code> of auto-generated keys of a chunk.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The results generated by the handler, one per chunk.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public <T> List<T> insertBatch(Connection conn, String sql, ResultSetHandler<T> rsh,
+                                   Iterator<Object[]> params, int chunkSize) {
+        return insertBatch(conn, false, sql, rsh, params, chunkSize);
+    }
+
+    /**
+     * Executes the given batch of INSERT SQL statements, streaming the
+     * replacement parameters.  The <code>Connection</code> is retrieved from
+     * the <code>DataSource</code> set in the constructor.  This
+     * <code>Connection</code> must be in auto-commit mode or the insert will
+     * not be saved.
+     *
+     * @param <T>       The type of object that the handler returns
+     * @param sql       The SQL statement to execute.
+     * @param rsh       The handler used to create the result object from
+     *                  the <code>ResultSet</code> of auto-generated keys of a chunk.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The results generated by the handler, one per chunk.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see #insertBatch(Connection, String, ResultSetHandler, Iterator, int)
+     */
+    public <T> List<T> insertBatch(String sql, ResultSetHandler<T> rsh, Iterator<Object[]> params, int chunkSize) {
+        return insertBatch(this.prepareConnection(), true, sql, rsh, params, chunkSize);
+    }
+
+    /**
+     * Executes the given streaming batch of INSERT SQL statements.
+     *
+     * @param conn      The connection to use for the query call.
+     * @param closeConn True if the connection should be closed, false otherwise.
+     * @param sql       The SQL statement to execute.
+     * @param rsh       The handler used to create the result object from
+     *                  the <code>ResultSet</code> of auto-generated keys of a chunk.
+     * @param params    The query replacement parameters, one array per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The results generated by the handler, one per chunk.
+     * @throws SQLRuntimeException If there are database or parameter errors.
+     */
+    private <T> List<T> insertBatch(Connection conn, boolean closeConn, String sql, ResultSetHandler<T> rsh,
+                                    Iterator<Object[]> params, int chunkSize) {
+        return this.insertBatch(conn, closeConn, sql, rsh, params, Function.identity(), chunkSize);
+    }
+
+    /**
+     * Executes the given streaming batch of INSERT SQL statements for rows
+     * of any type.
+     *
+     * @param conn      The connection to use for the query call.
+     * @param closeConn True if the connection should be closed, false otherwise.
+     * @param sql       The SQL statement to execute.
+     * @param rsh       The handler used to create the result object from
+     *                  the <code>ResultSet</code> of auto-generated keys of a chunk.
+     * @param rows      The batch rows.
+     * @param binder    Turns a row into its query replacement parameters just
+     *                  before it is bound.  The array is not kept, so the binder
+     *                  may return the same array for every row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The results generated by the handler, one per chunk.
+     * @throws SQLRuntimeException If there are database or parameter errors.
+     */
+    <T, R> List<T> insertBatch(Connection conn, boolean closeConn, String sql, ResultSetHandler<T> rsh,
+                               Iterator<? extends R> rows, Function<? super R, Object[]> binder, int chunkSize) {
+        if (rsh == null) {
+            if (closeConn) {
+                close(conn);
+            }
+            throw new SQLRuntimeException("Null ResultSetHandler");
+        }
+
+        List<T> results = new ArrayList<>();
+        this.batch(conn, closeConn, sql, Statement.RETURN_GENERATED_KEYS, rsh, rows, binder, chunkSize, (stmt, counts) -> {
+            ResultSet rs = stmt.getGeneratedKeys();
+            try {
+                results.add(rsh.handle(rs));
+            } finally {
+                close(rs);
+            }
+        });
+        return results;
+    }
+
     /**
      * Execute an SQL statement, including a stored procedure call, which does
      * not return any result sets.
@@ -872,22 +1550,34 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         CallableStatement stmt = null;
         int rows = 0;
+        StatementEvent event = this.startStatement(StatementEvent.Kind.CALL, sql, params, null, closeConn);
 
         try {
             stmt = this.prepareCall(conn, sql);
-            this.fillStatement(stmt, params);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
             stmt.execute();
             rows = stmt.getUpdateCount();
             this.retrieveOutParameters(stmt, params);
+            if (event != null) {
+                event.executed(Math.max(rows, 0));
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, params);
 
         } finally {
+            this.invalidate(conn, null);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return rows;
@@ -927,17 +1617,27 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
 
         CallableStatement stmt = null;
         List<T> results = new LinkedList<T>();
+        StatementEvent event = this.startStatement(StatementEvent.Kind.CALL, sql, params, rsh, closeConn);
 
         try {
             stmt = this.prepareCall(conn, sql);
-            this.fillStatement(stmt, params);
+            this.fillStatement(sql, stmt, params);
+            if (event != null) {
+                event.prepared();
+            }
             boolean moreResultSets = stmt.execute();
+            if (event != null) {
+                event.executed();
+            }
             // Handle multiple result sets by passing them through the handler
             // retaining the final result
             ResultSet rs = null;
             while (moreResultSets) {
                 try {
                     rs = this.wrap(stmt.getResultSet());
+                    if (event != null && rs != null) {
+                        rs = event.counting(rs);
+                    }
                     results.add(rsh.handle(rs));
                     moreResultSets = stmt.getMoreResults();
 
@@ -946,15 +1646,23 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
                 }
             }
             this.retrieveOutParameters(stmt, params);
+            if (event != null) {
+                event.fetched();
+            }
 
         } catch (SQLException e) {
+            if (event != null) {
+                event.failed(e);
+            }
             this.rethrow(e, sql, params);
 
         } finally {
+            this.invalidate(conn, null);
             close(stmt);
             if (closeConn) {
                 close(conn);
             }
+            this.completeStatement(event);
         }
 
         return results;
@@ -983,4 +1691,193 @@ public class JdbcAccessor extends AbstractJdbcAccessor {
             throw new SQLRuntimeException(throwables);
         }
     }
+
+    /**
+     * Receives the outcome of each executed chunk of a streaming batch.
+     */
+    private interface ChunkListener {
+        void chunkExecuted(PreparedStatement stmt, int[] rows) throws SQLException;
+    }
+
+    /**
+     * Collects the update counts of all chunks of a streaming batch.
+     */
+    private static final class UpdateCounts implements ChunkListener {
+        private int[] counts = new int[16];
+        private int size;
+
+        @Override
+        public void chunkExecuted(PreparedStatement stmt, int[] rows) {
+            if (size + rows.length > counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(counts.length * 2, size + rows.length));
+            }
+            System.arraycopy(rows, 0, counts, size, rows.length);
+            size += rows.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(counts, size);
+        }
+    }
+
+    /**
+     * Pulls rows from an open cursor for {@link #stream(Connection, String, RowMapper, Object...)}
+     * and releases the cursor, its statement and, if owned, its connection once
+     * exhausted or closed.
+     */
+    private final class RowSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Connection conn;
+        private final boolean closeConn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private final String sql;
+        private final Object[] params;
+        private final StatementEvent event;
+        private long count;
+        private boolean failed;
+        private boolean closed;
+
+        RowSpliterator(Connection conn, boolean closeConn, PreparedStatement stmt, ResultSet rs,
+                       RowMapper<T> mapper, String sql, Object[] params, StatementEvent event) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.conn = conn;
+            this.closeConn = closeConn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.mapper = mapper;
+            this.sql = sql;
+            this.params = params;
+            this.event = event;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                T row = mapper.mapRow(rs);
+                count++;
+                action.accept(row);
+                return true;
+            } catch (SQLException e) {
+                failed = true;
+                if (event != null) {
+                    event.failed(e);
+                }
+                close();
+                rethrow(e, sql, params);
+                return false;
+            } catch (RuntimeException e) {
+                // a failing mapper or consumer must not hold the cursor until the caller closes the stream
+                failed = true;
+                try {
+                    close();
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (event != null && !failed) {
+                event.fetched(count);
+            }
+            try {
+                JdbcAccessor.this.close(rs);
+            } finally {
+                JdbcAccessor.this.close(stmt);
+                if (closeConn) {
+                    JdbcAccessor.this.close(conn);
+                }
+                completeStatement(event);
+            }
+        }
+    }
+
+    /**
+     * Commits a connection and invalidates again the cached results of the
+     * tables written on it through this accessor since its last commit or
+     * rollback, as queries on other connections may have cached the old rows
+     * before the commit.
+     *
+     * @param conn The connection to commit.  A null value is legal.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see JdbcUtils#commit(Connection)
+     */
+    public void commit(Connection conn) {
+        try {
+            JdbcUtils.commit(conn);
+        } finally {
+            Map<Object, Runnable> invalidations = conn == null ? null : pendingInvalidations.remove(conn);
+            if (invalidations != null) {
+                invalidations.values().forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * Rolls back a connection and forgets the invalidations
+     * {@link #commit(Connection)} would have repeated.
+     *
+     * @param conn The connection to roll back.  A null value is legal.
+     * @throws SQLRuntimeException if a database access error occurs
+     * @see JdbcUtils#rollback(Connection)
+     */
+    public void rollback(Connection conn) {
+        try {
+            JdbcUtils.rollback(conn);
+        } finally {
+            if (conn != null) {
+                pendingInvalidations.remove(conn);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the cached results of the tables a statement writes.  On a
+     * connection bound by {@link #inTransaction(java.util.function.Supplier)}
+     * they are invalidated again when the transaction completes, and on other
+     * connections that are not in auto-commit mode when they are committed
+     * through {@link #commit(Connection)}, as queries on other connections may
+     * have cached the old rows in the meantime.
+     *
+     * @param conn The connection the statement ran on.
+     * @param sql  The statement, or null to invalidate all cached results.
+     */
+    private void invalidate(Connection conn, String sql) {
+        if (queryCache == null) {
+            return;
+        }
+        Runnable invalidation = sql == null ? queryCache::invalidateAll : () -> queryCache.invalidateWritten(sql);
+        invalidation.run();
+        Object key = Arrays.asList(queryCache, sql);
+        if (TransactionBinding.afterCompletion(conn, key, invalidation) || isAutoCommit(conn)) {
+            return;
+        }
+        synchronized (pendingInvalidations) {
+            pendingInvalidations.computeIfAbsent(conn, c -> new LinkedHashMap<>()).putIfAbsent(key, invalidation);
+        }
+    }
+
+    /**
+     * @return True if the connection is in auto-commit mode, or its mode cannot be read.
+     */
+    private static boolean isAutoCommit(Connection conn) {
+        try {
+            return conn.isClosed() || conn.getAutoCommit();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
 }
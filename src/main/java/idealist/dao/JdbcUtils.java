@@ -142,6 +142,22 @@ public final class JdbcUtils {
         }
     }
 
+    /**
+     * Commits any changes made on the given connection.
+     *
+     * @param conn Connection to commit.  A null value is legal.
+     * @throws SQLRuntimeException if a database access error occurs
+     */
+    public static void commit(Connection conn) {
+        try {
+            if (conn != null) {
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            throw new SQLRuntimeException(e);
+        }
+    }
+
     /**
      * Commits a <code>Connection</code> then closes it, avoid closing if null.
      *
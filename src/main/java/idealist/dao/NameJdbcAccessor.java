@@ -2,8 +2,11 @@ package idealist.dao;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-19 01:07:32
@@ -43,16 +46,94 @@ public class NameJdbcAccessor {
         return this.jdbcAccessor.getDataSource();
     }
 
+    /**
+     * Runs a unit of work in one transaction on one connection.
+     *
+     * @see JdbcAccessor#inTransaction(Supplier)
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return this.jdbcAccessor.inTransaction(work);
+    }
+
+    public boolean isInTransaction() {
+        return this.jdbcAccessor.isInTransaction();
+    }
+
+    JdbcAccessor getJdbcAccessor() {
+        return this.jdbcAccessor;
+    }
+
     public int[] batch(Connection conn, String sql, List<Map<String, Object>> params) {
-        return this.jdbcAccessor.batch(conn, NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        return this.batch(conn, false, NameParameter.parse(sql), params == null ? null : params.iterator(),
+                chunkSize(params));
     }
 
     public int[] batch(String sql, List<Map<String, Object>> params) {
-        return this.jdbcAccessor.batch(NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.batch(this.jdbcAccessor.prepareConnection(), true, parsed,
+                params == null ? null : params.iterator(), chunkSize(params));
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, binding each row of named parameters straight into
+     * the <code>PreparedStatement</code> as it is reached.  Only one row is resolved at a time, so the rows can be
+     * produced lazily and any number of them runs in constant memory.
+     *
+     * @param conn      The Connection to use to run the query.  The caller is responsible for closing this
+     *                  Connection.
+     * @param sql       The SQL with <code>#{name}</code> parameters.
+     * @param params    The parameter values by name, one map per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per batch row.
+     */
+    public int[] batch(Connection conn, String sql, Iterator<Map<String, Object>> params, int chunkSize) {
+        return this.batch(conn, false, NameParameter.parse(sql), params, chunkSize);
+    }
+
+    /**
+     * Execute a batch of SQL INSERT, UPDATE, or DELETE queries, binding each row of named parameters straight into
+     * the <code>PreparedStatement</code> as it is reached.  The <code>Connection</code> is retrieved from the
+     * <code>DataSource</code> set in the constructor.
+     *
+     * @param sql       The SQL with <code>#{name}</code> parameters.
+     * @param params    The parameter values by name, one map per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The number of rows updated per batch row.
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public int[] batch(String sql, Iterator<Map<String, Object>> params, int chunkSize) {
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.batch(this.jdbcAccessor.prepareConnection(), true, parsed, params, chunkSize);
+    }
+
+    /**
+     * @see #batch(Connection, String, Iterator, int)
+     */
+    public int[] batch(Connection conn, String sql, Iterable<Map<String, Object>> params, int chunkSize) {
+        return this.batch(conn, false, NameParameter.parse(sql), params == null ? null : params.iterator(), chunkSize);
+    }
+
+    /**
+     * @see #batch(String, Iterator, int)
+     */
+    public int[] batch(String sql, Iterable<Map<String, Object>> params, int chunkSize) {
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.batch(this.jdbcAccessor.prepareConnection(), true, parsed,
+                params == null ? null : params.iterator(), chunkSize);
+    }
+
+    /**
+     * The SQL is parsed by the callers before they retrieve a connection, so that an invalid statement cannot leak
+     * a connection this method would have to close.
+     */
+    private int[] batch(Connection conn, boolean closeConn, ParsedSql parsed, Iterator<Map<String, Object>> params,
+                        int chunkSize) {
+        return this.jdbcAccessor.batch(conn, closeConn, parsed.getSql(), params, binder(parsed), chunkSize);
     }
 
     public <T> T select(Connection conn, String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.select(conn, NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.select(conn, parsed.getSql(), rsh, parsed.getParameters(params));
     }
 
     public <T> T select(Connection conn, String sql, ResultSetHandler<T> rsh) {
@@ -60,19 +141,31 @@ public class NameJdbcAccessor {
     }
 
     public <T> T select(String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.select(NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.select(parsed.getSql(), rsh, parsed.getParameters(params));
     }
 
     public <T> T select(String sql, ResultSetHandler<T> rsh) {
         return this.jdbcAccessor.select(NameParameter.getSql(sql), rsh);
     }
 
+    public <T> T selectCached(Connection conn, String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.selectCached(conn, parsed.getSql(), rsh, parsed.getParameters(params));
+    }
+
+    public <T> T selectCached(String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.selectCached(parsed.getSql(), rsh, parsed.getParameters(params));
+    }
+
     public int update(Connection conn, String sql) {
         return this.jdbcAccessor.update(conn, NameParameter.getSql(sql));
     }
 
     public int update(Connection conn, String sql, Map<String, Object> params) {
-        return this.jdbcAccessor.update(conn, NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.update(conn, parsed.getSql(), parsed.getParameters(params));
     }
 
     public int update(String sql) {
@@ -80,7 +173,8 @@ public class NameJdbcAccessor {
     }
 
     public int update(String sql, Map<String, Object> params) {
-        return this.jdbcAccessor.update(NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.update(parsed.getSql(), parsed.getParameters(params));
     }
 
     public <T> T insert(String sql, ResultSetHandler<T> rsh) {
@@ -88,7 +182,8 @@ public class NameJdbcAccessor {
     }
 
     public <T> T insert(String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.insert(NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.insert(parsed.getSql(), rsh, parsed.getParameters(params));
     }
 
     public <T> T insert(Connection conn, String sql, ResultSetHandler<T> rsh) {
@@ -96,19 +191,84 @@ public class NameJdbcAccessor {
     }
 
     public <T> T insert(Connection conn, String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.insert(conn, NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.insert(conn, parsed.getSql(), rsh, parsed.getParameters(params));
     }
 
     public <T> T insertBatch(String sql, ResultSetHandler<T> rsh, List<Map<String, Object>> params) {
-        return this.jdbcAccessor.insertBatch(NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        if (params == null || params.isEmpty()) {
+            return this.jdbcAccessor.insertBatch(NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        }
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.insertBatch(this.jdbcAccessor.prepareConnection(), true, parsed, rsh, params.iterator(),
+                params.size()).get(0);
     }
 
     public <T> T insertBatch(Connection conn, String sql, ResultSetHandler<T> rsh, List<Map<String, Object>> params) {
-        return this.jdbcAccessor.insertBatch(conn, NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        if (params == null || params.isEmpty()) {
+            return this.jdbcAccessor.insertBatch(conn, NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        }
+        return this.insertBatch(conn, false, NameParameter.parse(sql), rsh, params.iterator(), params.size()).get(0);
+    }
+
+    /**
+     * Executes the given batch of INSERT SQL statements, binding each row of named parameters straight into the
+     * <code>PreparedStatement</code> as it is reached.  The batch is executed every <code>chunkSize</code> rows and
+     * the auto-generated keys of each chunk are passed to the handler.
+     *
+     * @param <T>       The type of object that the handler returns
+     * @param conn      The connection to use to run the query.
+     * @param sql       The SQL with <code>#{name}</code> parameters.
+     * @param rsh       The handler used to create the result object from the <code>ResultSet</code> of
+     *                  auto-generated keys of a chunk.
+     * @param params    The parameter values by name, one map per batch row.
+     * @param chunkSize The number of rows to execute per JDBC batch.
+     * @return The results generated by the handler, one per chunk.
+     */
+    public <T> List<T> insertBatch(Connection conn, String sql, ResultSetHandler<T> rsh,
+                                   Iterator<Map<String, Object>> params, int chunkSize) {
+        return this.insertBatch(conn, false, NameParameter.parse(sql), rsh, params, chunkSize);
+    }
+
+    /**
+     * Executes the given batch of INSERT SQL statements, binding each row of named parameters straight into the
+     * <code>PreparedStatement</code> as it is reached.  The <code>Connection</code> is retrieved from the
+     * <code>DataSource</code> set in the constructor.
+     *
+     * @see #insertBatch(Connection, String, ResultSetHandler, Iterator, int)
+     */
+    public <T> List<T> insertBatch(String sql, ResultSetHandler<T> rsh, Iterator<Map<String, Object>> params,
+                                   int chunkSize) {
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.insertBatch(this.jdbcAccessor.prepareConnection(), true, parsed, rsh, params, chunkSize);
+    }
+
+    /**
+     * @see #batch(Connection, boolean, ParsedSql, Iterator, int)
+     */
+    private <T> List<T> insertBatch(Connection conn, boolean closeConn, ParsedSql parsed, ResultSetHandler<T> rsh,
+                                    Iterator<Map<String, Object>> params, int chunkSize) {
+        return this.jdbcAccessor.insertBatch(conn, closeConn, parsed.getSql(), rsh, params, binder(parsed), chunkSize);
+    }
+
+    /**
+     * Resolves each row of named parameters into one array reused for the whole batch.
+     */
+    private static Function<Map<String, Object>, Object[]> binder(ParsedSql parsed) {
+        Object[] parameters = new Object[parsed.getParameterCount()];
+        return row -> parsed.getParameters(row, parameters);
+    }
+
+    /**
+     * Runs a whole list as a single JDBC batch, as before streaming batches existed.
+     */
+    private static int chunkSize(List<?> params) {
+        return params == null || params.isEmpty() ? 1 : params.size();
     }
 
     public int execute(Connection conn, String sql, Map<String, Object> params) {
-        return this.jdbcAccessor.execute(conn, NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.execute(conn, parsed.getSql(), parsed.getParameters(params));
     }
 
     public int execute(String sql) {
@@ -120,14 +280,17 @@ public class NameJdbcAccessor {
     }
 
     public int execute(String sql, Map<String, Object> params) {
-        return this.jdbcAccessor.execute(NameParameter.getSql(sql), NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.execute(parsed.getSql(), parsed.getParameters(params));
     }
 
     public <T> List<T> execute(Connection conn, String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.execute(conn, NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.execute(conn, parsed.getSql(), rsh, parsed.getParameters(params));
     }
 
     public <T> List<T> execute(String sql, ResultSetHandler<T> rsh, Map<String, Object> params) {
-        return this.jdbcAccessor.execute(NameParameter.getSql(sql), rsh, NameParameter.getParameters(sql, params));
+        ParsedSql parsed = NameParameter.parse(sql);
+        return this.jdbcAccessor.execute(parsed.getSql(), rsh, parsed.getParameters(params));
     }
 }
@@ -1,65 +1,85 @@
 package idealist.dao;
 
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
+ * Translates SQL with <code>#{name}</code> parameters into JDBC SQL.  Parsed statements are kept in a bounded,
+ * concurrent cache shared by all callers.
+ * <p>
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-19 01:08:05
  */
 public class NameParameter {
-    private static final Pattern pattern = Pattern.compile("#\\{(.*?)}");
-    private static final Map<String, String> sqls = new HashMap<>();
-    private static final Map<String, String[]> names = new HashMap<>();
+    /**
+     * The maximum number of parsed statements kept.
+     */
+    private static final int CACHE_SIZE = 2048;
+
+    private static final BoundedCache<String, ParsedSql> cache = new BoundedCache<>(CACHE_SIZE);
+
+    /**
+     * Returns the parsed form of an SQL statement, parsing it on the first call.
+     *
+     * @param sql The SQL with <code>#{name}</code> parameters.
+     * @return The parsed statement.
+     */
+    public static ParsedSql parse(String sql) {
+        return cache.computeIfAbsent(sql, ParsedSql::parse);
+    }
 
     public static String getSql(String sql) {
-        String result = sqls.get(sql);
-        if (result != null) {
-            return result;
-        }
-        parse(sql);
-        return sqls.get(sql);
+        return parse(sql).getSql();
     }
 
     public static String[] getNames(String sql) {
-        String[] result = names.get(sql);
-        if (result != null) {
-            return result;
-        }
-        parse(sql);
-        return names.get(sql);
+        return parse(sql).getNames();
     }
 
     public static Object[] getParameters(String sql, Map<String, Object> params) {
-        String[] names = getNames(sql);
-        Object[] parameters = new Object[names.length];
-        for (int i = 0; i < names.length; i++) {
-            parameters[i] = params.get(names[i]);
-        }
-        return parameters;
+        return parse(sql).getParameters(params);
     }
 
     public static Object[][] getParameters(String sql, List<Map<String, Object>> params) {
-        String[] names = getNames(sql);
-        Object[][] parameters = new Object[params.size()][names.length];
+        ParsedSql parsed = parse(sql);
+        Object[][] parameters = new Object[params.size()][];
         for (int i = 0; i < params.size(); i++) {
-            for (int j = 0; j < names.length; j++) {
-                parameters[i][j] = params.get(i).get(names[j]);
-            }
+            parameters[i] = parsed.getParameters(params.get(i));
         }
         return parameters;
     }
 
-    private static synchronized void parse(String sql) {
-        List<String> names = new LinkedList<>();
-        Matcher matcher = pattern.matcher(sql);
-        while (matcher.find()) {
-            names.add(matcher.group(1));
-        }
-        NameParameter.sqls.put(sql, matcher.replaceAll("?"));
-        NameParameter.names.put(sql, names.toArray(new String[0]));
+    /**
+     * @return The number of parsed statements in the cache.
+     */
+    public static int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * @return The number of lookups that found a parsed statement.
+     */
+    public static long getCacheHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * @return The number of lookups that had to parse the statement.
+     */
+    public static long getCacheMissCount() {
+        return cache.getMissCount();
+    }
+
+    /**
+     * @return The number of parsed statements evicted to keep the cache within its maximum size.
+     */
+    public static long getCacheEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * Removes all parsed statements from the cache.
+     */
+    public static void clearCache() {
+        cache.clear();
     }
 }
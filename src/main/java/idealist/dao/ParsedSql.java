@@ -0,0 +1,200 @@
+package idealist.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An SQL statement with <code>#{name}</code> parameters, parsed into JDBC SQL with <code>?</code> placeholders
+ * and the parameter names in placeholder order.  Placeholders inside quoted literals, quoted identifiers and
+ * comments are left alone.
+ * <p>
+ * Instances are immutable and are usually obtained from the cache of {@link NameParameter#parse(String)}.
+ */
+public final class ParsedSql {
+
+    private final String originalSql;
+    private final String sql;
+    private final String[] names;
+    private final int[] positions;
+
+    /**
+     * The index of the first placeholder with the same name as each placeholder, so that every distinct name is
+     * looked up once per set of values.
+     */
+    private final int[] firsts;
+
+    private ParsedSql(String originalSql, String sql, String[] names, int[] positions) {
+        this.originalSql = originalSql;
+        this.sql = sql;
+        this.names = names;
+        this.positions = positions;
+
+        Map<String, Integer> first = new HashMap<>();
+        this.firsts = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer index = first.putIfAbsent(names[i], i);
+            this.firsts[i] = index == null ? i : index;
+        }
+    }
+
+    /**
+     * Parses an SQL statement.
+     *
+     * @param originalSql The SQL with <code>#{name}</code> parameters.
+     * @return The parsed statement.
+     */
+    public static ParsedSql parse(String originalSql) {
+        int length = originalSql.length();
+        StringBuilder sql = new StringBuilder(length);
+        List<String> names = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        int i = 0;
+        while (i < length) {
+            char c = originalSql.charAt(i);
+            int end;
+            if (c == '\'' || c == '"' || c == '`') {
+                end = skipQuoted(originalSql, i, c);
+            } else if (c == '-' && i + 1 < length && originalSql.charAt(i + 1) == '-') {
+                end = originalSql.indexOf('\n', i + 2);
+                end = end < 0 ? length : end;
+            } else if (c == '/' && i + 1 < length && originalSql.charAt(i + 1) == '*') {
+                end = originalSql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+            } else if (c == '#' && i + 1 < length && originalSql.charAt(i + 1) == '{'
+                    && (end = closingBrace(originalSql, i + 2)) >= 0) {
+                names.add(originalSql.substring(i + 2, end));
+                positions.add(sql.length());
+                sql.append('?');
+                i = end + 1;
+                continue;
+            } else {
+                end = i + 1;
+            }
+            sql.append(originalSql, i, end);
+            i = end;
+        }
+
+        int[] offsets = new int[positions.size()];
+        for (int j = 0; j < offsets.length; j++) {
+            offsets[j] = positions.get(j);
+        }
+        return new ParsedSql(originalSql, sql.toString(), names.toArray(new String[0]), offsets);
+    }
+
+    /**
+     * Returns the end of a quoted literal or identifier, where a doubled quote stands for the quote itself.
+     */
+    private static int skipQuoted(String s, int start, char quote) {
+        int i = start + 1;
+        while (i < s.length()) {
+            if (s.charAt(i) == quote) {
+                if (i + 1 < s.length() && s.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return s.length();
+    }
+
+    /**
+     * Returns the position of the brace closing a parameter name on the same line, or -1.
+     */
+    private static int closingBrace(String s, int start) {
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '}') {
+                return i;
+            }
+            if (c == '\n' || c == '\r') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The SQL with <code>#{name}</code> parameters.
+     */
+    public String getOriginalSql() {
+        return originalSql;
+    }
+
+    /**
+     * @return The JDBC SQL with <code>?</code> placeholders.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The parameter names in placeholder order, a name appears once per placeholder.
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    /**
+     * @return The offsets of the placeholders in {@link #getSql()}.
+     */
+    public int[] getPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * @return The number of placeholders.
+     */
+    public int getParameterCount() {
+        return names.length;
+    }
+
+    /**
+     * @param index The placeholder index, starting at 0.
+     * @return The parameter name of the placeholder.
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Resolves the values of the placeholders.
+     *
+     * @param params The parameter values by name, or <code>null</code> for none.
+     * @return The placeholder values, <code>null</code> for names without a value.
+     */
+    public Object[] getParameters(Map<String, Object> params) {
+        return getParameters(params, new Object[names.length]);
+    }
+
+    /**
+     * Resolves the values of the placeholders into an existing array, so that a batch of value sets can be bound
+     * one set at a time through a single array.  Each distinct name is looked up once, however many placeholders
+     * it has.
+     *
+     * @param params     The parameter values by name, or <code>null</code> for none.
+     * @param parameters The array receiving the placeholder values, at least {@link #getParameterCount()} long.
+     * @return The <code>parameters</code> array, <code>null</code> for names without a value.
+     */
+    public Object[] getParameters(Map<String, ?> params, Object[] parameters) {
+        if (params == null) {
+            Arrays.fill(parameters, 0, names.length, null);
+            return parameters;
+        }
+        for (int i = 0; i < names.length; i++) {
+            int first = firsts[i];
+            parameters[i] = first == i ? params.get(names[i]) : parameters[first];
+        }
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
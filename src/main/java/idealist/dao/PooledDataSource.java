@@ -0,0 +1,847 @@
+package idealist.dao;
+
+import idealist.dao.wrappers.DelegatingConnection;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * A small connection pool in front of another <code>DataSource</code> or a JDBC URL.
+ *
+ * <p>
+ * Borrowing a connection takes no lock.  A thread first tries the connection it returned last, then claims the
+ * first idle connection of the shared list with a compare-and-set of its state, then opens a new connection while
+ * the pool is below its maximum size.  Only when all of that fails does it wait, up to the connection timeout, for
+ * a connection handed over directly by the thread returning it.  A timed out request fails with a
+ * <code>SQLTransientConnectionException</code>.
+ * </p>
+ *
+ * <p>
+ * Connections idle for longer than the validation threshold are checked with {@link Connection#isValid(int)}
+ * before they are handed out, connections used more recently are trusted.  A background task closes connections
+ * idle for longer than the idle timeout, down to the minimum idle count, and opens connections up to it.
+ * </p>
+ *
+ * <p>
+ * Closing a borrowed connection returns it to the pool.  A transaction left open is rolled back, and the
+ * auto-commit mode and any read-only mode, transaction isolation, catalog, schema, holdability or network
+ * timeout changed through the handle are restored.  Statements left open are not closed.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @see Builder
+ */
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static final int IDLE = 0;
+    private static final int IN_USE = 1;
+    private static final int REMOVED = -1;
+
+    /**
+     * How long a returning thread waits for a parked borrower to take its connection before leaving it idle.
+     */
+    private static final long HANDOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * The longest a borrower stays parked before it scans the pool again, bounding how long it can miss a
+     * connection left idle by a handoff that timed out.
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final DataSource dataSource;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long validationThresholdNanos;
+    private final int validationTimeoutSeconds;
+
+    /**
+     * All pooled connections, scanned for an idle one when the thread has none of its own.
+     */
+    private final CopyOnWriteArrayList<PoolEntry> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * The connection each thread returned last.
+     */
+    private final ThreadLocal<PoolEntry> lastEntry = new ThreadLocal<>();
+
+    /**
+     * Connections handed directly from a returning thread to a waiting one.
+     */
+    private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<>(true);
+
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+
+    /**
+     * The statement caches holding statements of pooled connections, which are purged when a connection is
+     * closed.  Held weakly, so that an accessor does not outlive its use.
+     */
+    private final Set<StatementCache> statementCaches =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final ScheduledThreadPoolExecutor housekeeper;
+    private volatile PrintWriter logWriter;
+    private volatile boolean closed;
+
+    private PooledDataSource(Builder builder) {
+        this.dataSource = builder.dataSource;
+        this.url = builder.url;
+        this.user = builder.user;
+        this.password = builder.password;
+        this.maxSize = builder.maxSize;
+        this.minIdle = builder.minIdle;
+        this.connectionTimeoutNanos = builder.connectionTimeoutNanos;
+        this.idleTimeoutNanos = builder.idleTimeoutNanos;
+        this.validationThresholdNanos = builder.validationThresholdNanos;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+
+        this.housekeeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "idealist-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, builder.housekeepingPeriodNanos,
+                builder.housekeepingPeriodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return A builder for a pool of connections from the given <code>DataSource</code>.
+     */
+    public static Builder builder(DataSource dataSource) {
+        return new Builder(dataSource, null, null, null);
+    }
+
+    /**
+     * @return A builder for a pool of connections from {@link DriverManager#getConnection(String, String, String)}.
+     */
+    public static Builder builder(String url, String user, String password) {
+        return new Builder(null, url, user, password);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the connection timeout for one to become available.
+     *
+     * @return A pooled connection, returned to the pool when closed.
+     * @throws SQLException if the pool is closed, no connection became available in time or a new connection
+     *                      could not be opened
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        PoolEntry entry = borrow(start);
+        long elapsed = System.nanoTime() - start;
+        acquireCount.increment();
+        acquireNanos.add(elapsed);
+        maxAcquireNanos.accumulate(elapsed);
+        active.incrementAndGet();
+        return new PooledConnection(entry);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("A pool only hands out connections of its configured user");
+    }
+
+    private PoolEntry borrow(long start) throws SQLException {
+        long deadline = start + connectionTimeoutNanos;
+        PoolEntry local = lastEntry.get();
+        if (local != null) {
+            if (local.claim() && usable(local)) {
+                return local;
+            }
+            if (local.state == REMOVED) {
+                lastEntry.remove();
+            }
+        }
+
+        waiting.incrementAndGet();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("PooledDataSource is closed");
+                }
+                for (PoolEntry entry : entries) {
+                    if (entry.claim() && usable(entry)) {
+                        return entry;
+                    }
+                }
+                PoolEntry created = tryCreate();
+                if (created != null) {
+                    return created;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount.increment();
+                    throw new SQLTransientConnectionException("Connection is not available, request timed out after "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+                }
+                PoolEntry entry;
+                parked.incrementAndGet();
+                try {
+                    entry = handoff.poll(Math.min(remaining, PARK_NANOS), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientConnectionException("Interrupted waiting for a connection", e);
+                } finally {
+                    parked.decrementAndGet();
+                }
+                if (entry != null && entry.claim() && usable(entry)) {
+                    return entry;
+                }
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Validates a claimed connection that was idle for longer than the validation threshold, removing it if it
+     * is no longer valid.
+     */
+    private boolean usable(PoolEntry entry) {
+        if (System.nanoTime() - entry.lastAccess <= validationThresholdNanos) {
+            return true;
+        }
+        try {
+            if (entry.conn.isValid(validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            // fall through and drop the connection
+        }
+        remove(entry);
+        return false;
+    }
+
+    /**
+     * Opens a new connection in use if the pool is below its maximum size.
+     *
+     * @return The new entry, or null if the pool is full.
+     */
+    private PoolEntry tryCreate() throws SQLException {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return null;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+
+        try {
+            PoolEntry entry = new PoolEntry(open(), IN_USE);
+            entries.add(entry);
+            createdCount.increment();
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection open() throws SQLException {
+        if (dataSource != null) {
+            return dataSource.getConnection();
+        }
+        return DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Returns a connection to the pool, handing it to a thread parked waiting for one if there is one.  The
+     * connection is offered once, briefly, and otherwise left idle for the next scan to claim.
+     */
+    private void release(PoolEntry entry) {
+        active.decrementAndGet();
+        if (closed) {
+            remove(entry);
+            return;
+        }
+        entry.lastAccess = System.nanoTime();
+        lastEntry.set(entry);
+        entry.state = IDLE;
+        if (closed && entry.evict()) {
+            // close() may have passed over the entry while it was still in use
+            remove(entry);
+            return;
+        }
+        if (parked.get() > 0) {
+            try {
+                handoff.offer(entry, HANDOFF_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void remove(PoolEntry entry) {
+        entry.state = REMOVED;
+        if (entries.remove(entry)) {
+            size.decrementAndGet();
+            closedCount.increment();
+        }
+        StatementCache[] caches;
+        synchronized (statementCaches) {
+            caches = statementCaches.toArray(new StatementCache[0]);
+        }
+        for (StatementCache cache : caches) {
+            cache.close(entry.conn);
+        }
+        try {
+            entry.conn.close();
+        } catch (SQLException e) {
+            // the connection is discarded anyway
+        }
+    }
+
+    /**
+     * Closes connections idle for longer than the idle timeout beyond the minimum idle count, and opens
+     * connections up to it.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        int idle = getIdleConnections();
+        for (PoolEntry entry : entries) {
+            if (idle <= minIdle) {
+                break;
+            }
+            if (now - entry.lastAccess > idleTimeoutNanos && entry.evict()) {
+                remove(entry);
+                idle--;
+            }
+        }
+        try {
+            while (!closed && getIdleConnections() < minIdle) {
+                PoolEntry entry = tryCreate();
+                if (entry == null) {
+                    break;
+                }
+                entry.lastAccess = System.nanoTime();
+                entry.state = IDLE;
+            }
+        } catch (SQLException | RuntimeException e) {
+            // retried on the next run
+        }
+    }
+
+    /**
+     * @return Whether a connection is a handle borrowed from a pool, whose closing returns the connection
+     * underneath to the pool.
+     */
+    static boolean isHandle(Connection conn) {
+        return conn instanceof PooledDataSource.PooledConnection;
+    }
+
+    /**
+     * @return The connection underneath a pool handle, or the connection itself if it is not one.
+     */
+    static Connection physicalConnection(Connection conn) {
+        return isHandle(conn) ? ((PooledDataSource.PooledConnection) conn).entry.conn : conn;
+    }
+
+    /**
+     * Registers a statement cache holding statements of the connection underneath a pool handle, so that the
+     * pool purges them when it closes that connection.  Does nothing if the connection is not a pool handle.
+     */
+    static void track(Connection conn, StatementCache cache) {
+        if (isHandle(conn)) {
+            ((PooledDataSource.PooledConnection) conn).pool().statementCaches.add(cache);
+        }
+    }
+
+    /**
+     * Closes the idle connections and stops handing out connections.  Connections in use are closed when they
+     * are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry entry : entries) {
+            if (entry.evict()) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * @return True if the pool was closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return The maximum number of connections.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of open connections.
+     */
+    public int getTotalConnections() {
+        return size.get();
+    }
+
+    /**
+     * @return The number of borrowed connections.
+     */
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    /**
+     * @return The number of open connections not borrowed.
+     */
+    public int getIdleConnections() {
+        return Math.max(size.get() - active.get(), 0);
+    }
+
+    /**
+     * @return The number of threads waiting for a connection.
+     */
+    public int getThreadsAwaitingConnection() {
+        return waiting.get();
+    }
+
+    /**
+     * @return The share of the maximum size that is borrowed, between 0 and 1.
+     */
+    public double getUtilization() {
+        return (double) active.get() / maxSize;
+    }
+
+    /**
+     * @return The number of connections handed out.
+     */
+    public long getAcquireCount() {
+        return acquireCount.sum();
+    }
+
+    /**
+     * @return The average time it took to hand out a connection, in nanoseconds.
+     */
+    public long getAverageAcquireNanos() {
+        long count = acquireCount.sum();
+        return count == 0 ? 0 : acquireNanos.sum() / count;
+    }
+
+    /**
+     * @return The longest time it took to hand out a connection, in nanoseconds.
+     */
+    public long getMaxAcquireNanos() {
+        return maxAcquireNanos.get();
+    }
+
+    /**
+     * @return The number of requests that timed out waiting for a connection.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * @return The number of connections opened.
+     */
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    /**
+     * @return The number of connections closed by eviction, failed validation or closing the pool.
+     */
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Use Builder.connectionTimeout instead");
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(connectionTimeoutNanos);
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        if (dataSource != null) {
+            return dataSource.unwrap(iface);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource != null && dataSource.isWrapperFor(iface);
+    }
+
+    /**
+     * A pooled physical connection and its state.
+     */
+    private static final class PoolEntry {
+        private static final AtomicIntegerFieldUpdater<PoolEntry> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+
+        private final Connection conn;
+        private final boolean autoCommit;
+        private volatile int state;
+        private volatile long lastAccess;
+
+        PoolEntry(Connection conn, int state) throws SQLException {
+            this.conn = conn;
+            this.autoCommit = conn.getAutoCommit();
+            this.state = state;
+            this.lastAccess = System.nanoTime();
+        }
+
+        boolean claim() {
+            return STATE.compareAndSet(this, IDLE, IN_USE);
+        }
+
+        boolean evict() {
+            return STATE.compareAndSet(this, IDLE, REMOVED);
+        }
+    }
+
+    /**
+     * The handle of a borrowed connection, returned to the pool when closed.  A new handle is created for every
+     * borrow, so a closed handle cannot reach the connection again.  The handle remembers the original value of
+     * every setting it changes and restores it on close, so the next borrower gets the connection as the pool
+     * handed it out.
+     */
+    private final class PooledConnection extends DelegatingConnection {
+        private static final int READ_ONLY = 1;
+        private static final int ISOLATION = 1 << 1;
+        private static final int CATALOG = 1 << 2;
+        private static final int SCHEMA = 1 << 3;
+        private static final int HOLDABILITY = 1 << 4;
+        private static final int NETWORK_TIMEOUT = 1 << 5;
+
+        private final PoolEntry entry;
+        private boolean autoCommit;
+        private boolean closed;
+
+        /**
+         * The settings changed through this handle, and their original values.
+         */
+        private int dirty;
+        private boolean readOnly;
+        private int isolation;
+        private String catalog;
+        private String schema;
+        private int holdability;
+        private int networkTimeout;
+
+        PooledConnection(PoolEntry entry) {
+            super(entry.conn);
+            this.entry = entry;
+            this.autoCommit = entry.autoCommit;
+        }
+
+        PooledDataSource pool() {
+            return PooledDataSource.this;
+        }
+
+        @Override
+        protected Connection delegate() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            return entry.conn;
+        }
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) throws SQLException {
+            super.setAutoCommit(autoCommit);
+            this.autoCommit = autoCommit;
+        }
+
+        @Override
+        public void setReadOnly(boolean readOnly) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & READ_ONLY) == 0) {
+                this.readOnly = conn.isReadOnly();
+                dirty |= READ_ONLY;
+            }
+            conn.setReadOnly(readOnly);
+        }
+
+        @Override
+        public void setTransactionIsolation(int level) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & ISOLATION) == 0) {
+                this.isolation = conn.getTransactionIsolation();
+                dirty |= ISOLATION;
+            }
+            conn.setTransactionIsolation(level);
+        }
+
+        @Override
+        public void setCatalog(String catalog) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & CATALOG) == 0) {
+                this.catalog = conn.getCatalog();
+                dirty |= CATALOG;
+            }
+            conn.setCatalog(catalog);
+        }
+
+        @Override
+        public void setSchema(String schema) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & SCHEMA) == 0) {
+                this.schema = conn.getSchema();
+                dirty |= SCHEMA;
+            }
+            conn.setSchema(schema);
+        }
+
+        @Override
+        public void setHoldability(int holdability) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & HOLDABILITY) == 0) {
+                this.holdability = conn.getHoldability();
+                dirty |= HOLDABILITY;
+            }
+            conn.setHoldability(holdability);
+        }
+
+        @Override
+        public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+            Connection conn = delegate();
+            if ((dirty & NETWORK_TIMEOUT) == 0) {
+                this.networkTimeout = conn.getNetworkTimeout();
+                dirty |= NETWORK_TIMEOUT;
+            }
+            conn.setNetworkTimeout(executor, milliseconds);
+        }
+
+        @Override
+        public boolean isClosed() throws SQLException {
+            return closed || entry.conn.isClosed();
+        }
+
+        /**
+         * Restores the settings changed through this handle, after the transaction has ended.
+         */
+        private void reset() throws SQLException {
+            Connection conn = entry.conn;
+            if ((dirty & READ_ONLY) != 0) {
+                conn.setReadOnly(readOnly);
+            }
+            if ((dirty & ISOLATION) != 0) {
+                conn.setTransactionIsolation(isolation);
+            }
+            if ((dirty & CATALOG) != 0) {
+                conn.setCatalog(catalog);
+            }
+            if ((dirty & SCHEMA) != 0) {
+                conn.setSchema(schema);
+            }
+            if ((dirty & HOLDABILITY) != 0) {
+                conn.setHoldability(holdability);
+            }
+            if ((dirty & NETWORK_TIMEOUT) != 0) {
+                conn.setNetworkTimeout(housekeeper, networkTimeout);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!autoCommit) {
+                    entry.conn.rollback();
+                }
+                if (autoCommit != entry.autoCommit) {
+                    entry.conn.setAutoCommit(entry.autoCommit);
+                }
+                if (dirty != 0) {
+                    reset();
+                }
+            } catch (SQLException e) {
+                active.decrementAndGet();
+                remove(entry);
+                throw e;
+            }
+            release(entry);
+        }
+    }
+
+    /**
+     * Builds a {@link PooledDataSource}.
+     */
+    public static final class Builder {
+        private final DataSource dataSource;
+        private final String url;
+        private final String user;
+        private final String password;
+        private int maxSize = 10;
+        private int minIdle;
+        private long connectionTimeoutNanos = TimeUnit.SECONDS.toNanos(30);
+        private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+        private long validationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(500);
+        private int validationTimeoutSeconds = 5;
+        private long housekeepingPeriodNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private Builder(DataSource dataSource, String url, String user, String password) {
+            if (dataSource == null && url == null) {
+                throw new NullPointerException("dataSource or url");
+            }
+            this.dataSource = dataSource;
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        /**
+         * @param maxSize The maximum number of open connections, 10 by default.
+         * @return This builder.
+         */
+        public Builder maxSize(int maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+            }
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param minIdle The number of idle connections kept open, 0 by default.
+         * @return This builder.
+         */
+        public Builder minIdle(int minIdle) {
+            if (minIdle < 0) {
+                throw new IllegalArgumentException("minIdle cannot be negative: " + minIdle);
+            }
+            this.minIdle = minIdle;
+            return this;
+        }
+
+        /**
+         * @param timeout The longest time to wait for a connection, 30 seconds by default.
+         * @param unit    The unit of the timeout.
+         * @return This builder.
+         */
+        public Builder connectionTimeout(long timeout, TimeUnit unit) {
+            this.connectionTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout The idle time after which a connection beyond the minimum idle count is closed, 10
+         *                minutes by default.
+         * @param unit    The unit of the timeout.
+         * @return This builder.
+         */
+        public Builder idleTimeout(long timeout, TimeUnit unit) {
+            this.idleTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * @param threshold The idle time after which a connection is validated before it is handed out, 500
+         *                  milliseconds by default.
+         * @param unit      The unit of the threshold.
+         * @return This builder.
+         */
+        public Builder validationThreshold(long threshold, TimeUnit unit) {
+            this.validationThresholdNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        /**
+         * @param seconds The timeout passed to {@link Connection#isValid(int)}, 5 seconds by default.
+         * @return This builder.
+         */
+        public Builder validationTimeout(int seconds) {
+            this.validationTimeoutSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * @param period How often idle connections are evicted and the minimum idle count is restored, 30
+         *               seconds by default.
+         * @param unit   The unit of the period.
+         * @return This builder.
+         */
+        public Builder housekeepingPeriod(long period, TimeUnit unit) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("period must be positive: " + period);
+            }
+            this.housekeepingPeriodNanos = unit.toNanos(period);
+            return this;
+        }
+
+        /**
+         * @return A new pool.
+         */
+        public PooledDataSource build() {
+            if (minIdle > maxSize) {
+                throw new IllegalArgumentException("minIdle cannot exceed maxSize: " + minIdle);
+            }
+            return new PooledDataSource(this);
+        }
+    }
+}
@@ -1,13 +1,32 @@
 package idealist.dao;
 
+import idealist.dao.wrappers.DelegatingCallableStatement;
+import idealist.dao.wrappers.DelegatingConnection;
+import idealist.dao.wrappers.DelegatingDriver;
+import idealist.dao.wrappers.DelegatingPreparedStatement;
+import idealist.dao.wrappers.DelegatingResultSet;
+import idealist.dao.wrappers.DelegatingResultSetMetaData;
+import idealist.dao.wrappers.DelegatingStatement;
+
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.sql.*;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Creates proxy implementations of JDBC interfaces.  This avoids
  * incompatibilities between the JDBC 2 and JDBC 3 interfaces.  This class is
  * thread safe.
+ * <p>
+ * The constructor of the proxy class of each interface and handler class is
+ * looked up once and cached, so creating a proxy is a direct constructor call.
+ * Where no handler is needed, the <code>createDelegating*</code> methods return
+ * forwarding implementations from {@link idealist.dao.wrappers} instead, to be
+ * subclassed for the calls they decorate without any reflective dispatch.
  *
  * @see Proxy
  * @see InvocationHandler
@@ -21,6 +40,18 @@ public class ProxyFactory {
      */
     private static final ProxyFactory instance = new ProxyFactory();
 
+    /**
+     * Proxy class constructors by interface, per handler class.  The class loader of the handler class defines the
+     * proxy classes, as in {@link #newProxyInstance(Class, InvocationHandler)}.  Constructors that cannot be made
+     * accessible are empty, and their proxies are created through <code>Proxy.newProxyInstance</code>.
+     */
+    private static final ClassValue<Map<Class<?>, Optional<Constructor<?>>>> constructors = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, Optional<Constructor<?>>> computeValue(Class<?> handlerType) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     /**
      * Protected constructor for ProxyFactory subclasses to use.
      */
@@ -46,7 +77,31 @@ public class ProxyFactory {
      * @return proxied object
      */
     public <T> T newProxyInstance(Class<T> type, InvocationHandler handler) {
-        return type.cast(Proxy.newProxyInstance(handler.getClass().getClassLoader(), new Class<?>[]{type}, handler));
+        Map<Class<?>, Optional<Constructor<?>>> byType = constructors.get(handler.getClass());
+        Optional<Constructor<?>> constructor = byType.get(type);
+        if (constructor == null) {
+            constructor = byType.computeIfAbsent(type, key -> constructor(key, handler.getClass().getClassLoader()));
+        }
+        if (constructor.isEmpty()) {
+            return type.cast(Proxy.newProxyInstance(handler.getClass().getClassLoader(), new Class<?>[]{type}, handler));
+        }
+        try {
+            return type.cast(constructor.get().newInstance(handler));
+        } catch (InvocationTargetException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Optional<Constructor<?>> constructor(Class<?> type, ClassLoader loader) {
+        Class<?> proxyClass = Proxy.newProxyInstance(loader, new Class<?>[]{type}, (proxy, method, args) -> null).getClass();
+        try {
+            Constructor<?> constructor = proxyClass.getConstructor(InvocationHandler.class);
+            return constructor.trySetAccessible() ? Optional.of(constructor) : Optional.empty();
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
     }
 
     /**
@@ -119,4 +174,73 @@ public class ProxyFactory {
         return newProxyInstance(Statement.class, handler);
     }
 
+    /**
+     * Creates a <code>CallableStatement</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The statement the calls are forwarded to.
+     * @return forwarding CallableStatement
+     */
+    public DelegatingCallableStatement createDelegatingCallableStatement(CallableStatement delegate) {
+        return new DelegatingCallableStatement(delegate);
+    }
+
+    /**
+     * Creates a <code>Connection</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The connection the calls are forwarded to.
+     * @return forwarding Connection
+     */
+    public DelegatingConnection createDelegatingConnection(Connection delegate) {
+        return new DelegatingConnection(delegate);
+    }
+
+    /**
+     * Creates a <code>Driver</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The driver the calls are forwarded to.
+     * @return forwarding Driver
+     */
+    public DelegatingDriver createDelegatingDriver(Driver delegate) {
+        return new DelegatingDriver(delegate);
+    }
+
+    /**
+     * Creates a <code>PreparedStatement</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The statement the calls are forwarded to.
+     * @return forwarding PreparedStatement
+     */
+    public DelegatingPreparedStatement createDelegatingPreparedStatement(PreparedStatement delegate) {
+        return new DelegatingPreparedStatement(delegate);
+    }
+
+    /**
+     * Creates a <code>ResultSet</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The result set the calls are forwarded to.
+     * @return forwarding ResultSet
+     */
+    public DelegatingResultSet createDelegatingResultSet(ResultSet delegate) {
+        return new DelegatingResultSet(delegate);
+    }
+
+    /**
+     * Creates a <code>ResultSetMetaData</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The metadata the calls are forwarded to.
+     * @return forwarding ResultSetMetaData
+     */
+    public DelegatingResultSetMetaData createDelegatingResultSetMetaData(ResultSetMetaData delegate) {
+        return new DelegatingResultSetMetaData(delegate);
+    }
+
+    /**
+     * Creates a <code>Statement</code> forwarding every call to another one, without a handler.
+     *
+     * @param delegate The statement the calls are forwarded to.
+     * @return forwarding Statement
+     */
+    public DelegatingStatement createDelegatingStatement(Statement delegate) {
+        return new DelegatingStatement(delegate);
+    }
 }
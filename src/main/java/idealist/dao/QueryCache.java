@@ -0,0 +1,590 @@
+package idealist.dao;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A read-through cache of query results, used by {@link JdbcAccessor#selectCached(String, ResultSetHandler, Object...)}.
+ *
+ * <p>
+ * <strong>A cached result is the very object the handler returned, shared by every caller that hits the entry:
+ * lists, maps and beans returned by <code>selectCached</code> must be treated as read-only.</strong>  A caller
+ * modifying one changes what later callers get until the entry is invalidated or expires.  Handlers returning
+ * immutable results, or copying them, avoid this.
+ * </p>
+ *
+ * <p>
+ * Results are keyed by SQL text, handler and parameters, so a query should reuse one handler instance (handlers
+ * are thread safe) to share its entries.  Each entry is tagged with the tables the query reads, found after
+ * <code>FROM</code> and <code>JOIN</code>.  Writes through the accessor invalidate the entries tagged with the table
+ * they write; a write whose table cannot be found invalidates everything.  Entries of queries whose tables cannot
+ * be found are invalidated by every write.  Entries also expire after the time to live, which bounds the staleness
+ * of results changed by others.
+ * </p>
+ *
+ * <p>
+ * Lookups take no lock.  When the cache grows beyond its maximum size, expired entries and then the least recently
+ * used ({@link Eviction#LRU}) or least frequently used ({@link Eviction#LFU}) entries are evicted down to nine
+ * tenths of the maximum size, so the cost of an eviction pass is spread over many insertions.  Concurrent misses
+ * of the same query may each load it.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe.
+ * </p>
+ */
+public class QueryCache {
+
+    /**
+     * The entries evicted first when the cache is full.
+     */
+    public enum Eviction {
+        /**
+         * Least recently used.
+         */
+        LRU,
+        /**
+         * Least frequently used.
+         */
+        LFU
+    }
+
+    /**
+     * Caches a null result.
+     */
+    private static final Object NULL = new Object();
+
+    /**
+     * The tag of queries whose tables cannot be found, invalidated by every write.
+     */
+    private static final String ANY_TABLE = "*";
+
+    /**
+     * The maximum number of statements whose tables are kept.
+     */
+    private static final int TABLES_CACHE_SIZE = 2048;
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "where", "group", "order", "having", "limit", "offset", "fetch", "join", "inner", "left", "right",
+            "full", "outer", "cross", "natural", "on", "using", "union", "intersect", "except", "minus", "select",
+            "as", "for", "window", "lateral", "values", "set", "into", "from", "with", "returning", "only"));
+
+    /**
+     * The keywords ending a <code>FROM</code> clause.
+     */
+    private static final Set<String> CLAUSE_ENDS = new HashSet<>(Arrays.asList(
+            "where", "group", "order", "having", "limit", "offset", "fetch", "union", "intersect", "except", "minus",
+            "window", "for", "returning"));
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Eviction eviction;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<Key>> keysByTable = new ConcurrentHashMap<>();
+    private final BoundedCache<String, String[]> readTables = new BoundedCache<>(TABLES_CACHE_SIZE);
+    private final BoundedCache<String, String[]> writtenTables = new BoundedCache<>(TABLES_CACHE_SIZE);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Incremented by every invalidation, so that results loaded across an invalidation are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    private final LongAdder invalidationCount = new LongAdder();
+
+    /**
+     * Constructor for QueryCache.
+     *
+     * @param maxSize  The maximum number of cached results, must be positive.
+     * @param ttl      The time a result stays cached, must be positive.
+     * @param unit     The unit of <code>ttl</code>.
+     * @param eviction The entries evicted first when the cache is full.
+     */
+    public QueryCache(int maxSize, long ttl, TimeUnit unit, Eviction eviction) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.eviction = eviction;
+    }
+
+    /**
+     * Returns the cached result of a query, loading and caching it on a miss.
+     *
+     * @param <T>    The type of the result.
+     * @param sql    The query.
+     * @param rsh    The handler of the query, part of the key.
+     * @param params The query replacement parameters.
+     * @param loader Runs the query.
+     * @return The cached or loaded result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String sql, ResultSetHandler<T> rsh, Object[] params, Supplier<T> loader) {
+        Key key = new Key(sql, rsh, params);
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null) {
+            if (now - entry.expiresAt < 0) {
+                entry.lastAccess = now;
+                entry.hits++;
+                hitCount.increment();
+                return entry.value == NULL ? null : (T) entry.value;
+            }
+            if (entries.remove(key, entry)) {
+                expirationCount.increment();
+                untag(key, entry);
+            }
+        }
+
+        missCount.increment();
+        long version = generation.get();
+        T result = loader.get();
+        long loaded = System.nanoTime();
+        loadNanos.add(loaded - now);
+
+        String[] tables = readTables.computeIfAbsent(sql, QueryCache::tags);
+        key = new Key(sql, rsh, params == null ? null : params.clone());
+        entry = new Entry(result == null ? NULL : result, tables, loaded + ttlNanos, loaded);
+        for (String table : tables) {
+            keysByTable.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        entries.put(key, entry);
+        if (generation.get() != version) {
+            // a write may have changed the result while it was loading
+            if (entries.remove(key, entry)) {
+                untag(key, entry);
+            }
+        } else if (entries.size() > maxSize) {
+            evict();
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the results of the tables an INSERT, UPDATE, DELETE, MERGE, REPLACE or TRUNCATE statement
+     * writes, or all results if the table cannot be found.
+     *
+     * @param sql The statement.
+     */
+    public void invalidateWritten(String sql) {
+        String[] tables = writtenTables.computeIfAbsent(sql, QueryCache::writtenTables);
+        if (tables.length == 0) {
+            invalidateAll();
+            return;
+        }
+        for (String table : tables) {
+            invalidate(table);
+        }
+    }
+
+    /**
+     * Invalidates the results of the queries reading a table.
+     *
+     * @param table The table name, without schema and case insensitive.
+     */
+    public void invalidate(String table) {
+        generation.incrementAndGet();
+        removeTagged(normalize(table));
+        removeTagged(ANY_TABLE);
+    }
+
+    private void removeTagged(String tag) {
+        Set<Key> keys = keysByTable.remove(tag);
+        if (keys == null) {
+            return;
+        }
+        for (Key key : keys) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                invalidationCount.increment();
+                untag(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Invalidates all results.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidationCount.add(entries.size());
+        entries.clear();
+        keysByTable.clear();
+    }
+
+    /**
+     * @return The number of cached results.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximum number of cached results.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of lookups that found a cached result.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of lookups that had to run the query.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The share of lookups that found a cached result, between 0 and 1.
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return The total time spent running queries on misses, in nanoseconds.
+     */
+    public long getTotalLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * @return The average time a miss spent running the query, in nanoseconds.
+     */
+    public long getAverageLoadNanos() {
+        long misses = missCount.sum();
+        return misses == 0 ? 0 : loadNanos.sum() / misses;
+    }
+
+    /**
+     * @return The number of results evicted to stay within the maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return The number of results removed after their time to live.
+     */
+    public long getExpirationCount() {
+        return expirationCount.sum();
+    }
+
+    /**
+     * @return The number of results removed by invalidation.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * Evicts expired entries and then entries by the eviction policy down to nine tenths of the maximum size.
+     * Only one thread evicts at a time, the others carry on.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+                if (now - e.getValue().expiresAt >= 0) {
+                    if (entries.remove(e.getKey(), e.getValue())) {
+                        expirationCount.increment();
+                        untag(e.getKey(), e.getValue());
+                    }
+                } else {
+                    candidates.add(e);
+                }
+            }
+
+            int excess = entries.size() - maxSize * 9 / 10;
+            if (excess <= 0) {
+                return;
+            }
+            // rank on copies, lookups keep changing hits and lastAccess while sorting
+            long[] ranks = new long[candidates.size()];
+            Integer[] order = new Integer[candidates.size()];
+            for (int i = 0; i < order.length; i++) {
+                Entry entry = candidates.get(i).getValue();
+                ranks[i] = eviction == Eviction.LFU ? entry.hits : entry.lastAccess - now;
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(ranks[a], ranks[b]));
+            for (int i = 0; i < order.length && excess > 0; i++) {
+                Map.Entry<Key, Entry> e = candidates.get(order[i]);
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictionCount.increment();
+                    untag(e.getKey(), e.getValue());
+                    excess--;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void untag(Key key, Entry entry) {
+        for (String table : entry.tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys != null) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Returns the tags of a query: the tables it reads, or {@link #ANY_TABLE} if none can be found.
+     */
+    private static String[] tags(String sql) {
+        String[] tables = readTables(sql);
+        return tables.length == 0 ? new String[]{ANY_TABLE} : tables;
+    }
+
+    /**
+     * Finds the tables a query reads, after <code>FROM</code>, and after <code>JOIN</code> and the commas of a
+     * <code>FROM</code> clause, including those of subqueries.
+     */
+    static String[] readTables(String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        // the parenthesis depths of the enclosing FROM clauses
+        Deque<Integer> clauses = new ArrayDeque<>();
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            String lower = token.toLowerCase(Locale.ROOT);
+            boolean inClause = !clauses.isEmpty() && clauses.peek() == depth;
+            if (token.equals("(")) {
+                depth++;
+                continue;
+            }
+            if (token.equals(")")) {
+                if (inClause) {
+                    clauses.pop();
+                }
+                depth--;
+                continue;
+            }
+            if (lower.equals("from")) {
+                if (!inClause) {
+                    clauses.push(depth);
+                }
+            } else if (inClause && CLAUSE_ENDS.contains(lower)) {
+                clauses.pop();
+                continue;
+            } else if (!inClause || !(lower.equals("join") || token.equals(","))) {
+                continue;
+            }
+            if (i + 1 < tokens.size() && tokens.get(i + 1).equalsIgnoreCase("only")) {
+                i++;
+            }
+            if (i + 1 < tokens.size() && isIdentifier(tokens.get(i + 1))) {
+                tables.add(normalize(tokens.get(++i)));
+            }
+        }
+        return tables.toArray(new String[0]);
+    }
+
+    /**
+     * Finds the table an INSERT, UPDATE, DELETE, MERGE, REPLACE or TRUNCATE statement writes.
+     */
+    static String[] writtenTables(String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            String token = tokens.get(i).toLowerCase(Locale.ROOT);
+            String next = tokens.get(i + 1).toLowerCase(Locale.ROOT);
+            int table = -1;
+            if (token.equals("update")) {
+                table = i + 1;
+            } else if ((token.equals("insert") || token.equals("merge") || token.equals("replace"))
+                    && next.equals("into")) {
+                table = i + 2;
+            } else if (token.equals("delete")) {
+                table = next.equals("from") ? i + 2 : i + 1;
+            } else if (token.equals("truncate")) {
+                table = next.equals("table") ? i + 2 : i + 1;
+            }
+            if (table > 0 && table < tokens.size() && tokens.get(table).equalsIgnoreCase("only")) {
+                table++;
+            }
+            if (table > 0 && table < tokens.size() && isIdentifier(tokens.get(table))) {
+                tables.add(normalize(tokens.get(table)));
+            }
+        }
+        return tables.toArray(new String[0]);
+    }
+
+    private static boolean isIdentifier(String token) {
+        char c = token.charAt(0);
+        if (c == '"' || c == '`' || c == '[') {
+            return true;
+        }
+        return (Character.isLetter(c) || c == '_') && !KEYWORDS.contains(token.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the table name without schema and quotes, in lower case.
+     */
+    private static String normalize(String name) {
+        String table = name;
+        int dot = lastDotOutsideQuotes(table);
+        if (dot >= 0) {
+            table = table.substring(dot + 1);
+        }
+        if (table.length() >= 2 && (table.charAt(0) == '"' || table.charAt(0) == '`' || table.charAt(0) == '[')) {
+            table = table.substring(1, table.length() - 1);
+        }
+        return table.toLowerCase(Locale.ROOT);
+    }
+
+    private static int lastDotOutsideQuotes(String name) {
+        char quote = 0;
+        int dot = -1;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '[') {
+                quote = ']';
+            } else if (c == '.') {
+                dot = i;
+            }
+        }
+        return dot;
+    }
+
+    /**
+     * Splits SQL into words, possibly dotted or quoted, and single punctuation characters, dropping literals
+     * and comments.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                i = skip(sql, i + 1, '\'');
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '`' || c == '[') {
+                int start = i;
+                while (i < length) {
+                    char d = sql.charAt(i);
+                    if (d == '"' || d == '`') {
+                        i = skip(sql, i + 1, d);
+                    } else if (d == '[') {
+                        i = skip(sql, i + 1, ']');
+                    } else if (Character.isLetterOrDigit(d) || d == '_' || d == '.' || d == '$') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(sql.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skip(String sql, int from, char quote) {
+        int end = sql.indexOf(quote, from);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final String[] tables;
+        private final long expiresAt;
+        private volatile long lastAccess;
+        /**
+         * Approximate, concurrent hits may be lost.
+         */
+        private int hits;
+
+        Entry(Object value, String[] tables, long expiresAt, long lastAccess) {
+            this.value = value;
+            this.tables = tables;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final ResultSetHandler<?> rsh;
+        private final Object[] params;
+        private final int hash;
+
+        Key(String sql, ResultSetHandler<?> rsh, Object[] params) {
+            this.sql = sql;
+            this.rsh = rsh;
+            this.params = params;
+            this.hash = (sql.hashCode() * 31 + System.identityHashCode(rsh)) * 31 + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return rsh == other.rsh && sql.equals(other.sql) && Arrays.deepEquals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
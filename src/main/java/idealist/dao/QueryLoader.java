@@ -1,22 +1,57 @@
 package idealist.dao;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
  * <code>QueryLoader</code> is a registry for sets of queries so
  * that multiple copies of the same queries aren't loaded into memory.
  * This implementation loads properties files filled with query name to
- * SQL mappings.  This class is thread safe.
+ * SQL mappings, from the classpath or from the file system.  This class is
+ * thread safe.
+ * <p>
+ * Loaded sets are kept in a concurrent map, so looking up a set that is
+ * already loaded never locks.  The <code>#{name}</code> parameters of every
+ * query are parsed when its set loads; {@link #loadParsed(String)} returns
+ * the {@link ParsedSql} statements, ready to execute.
+ * <p>
+ * After {@link #startWatching()}, files loaded from the file system, and
+ * classpath resources that are plain files, are reloaded by a daemon thread
+ * when they change.  A reloaded set replaces the previous one as a whole, so
+ * callers see either the old or the new queries; callers that should pick up
+ * changes look the set up again instead of holding on to its map.  A file that
+ * fails to reload keeps its previous queries.
  * <p>
  * Created by Charles Cui<lfylccxm@hotmail.com> on 2021-05-19 01:01:24
  */
 public class QueryLoader {
 
+    private static final Logger logger = LoggerFactory.getLogger(QueryLoader.class);
+
     /**
      * The Singleton instance of this class.
      */
@@ -27,9 +62,18 @@ public class QueryLoader {
      */
     private static final Pattern dotXml = Pattern.compile(".+\\.[xX][mM][lL]");
     /**
-     * Maps query set names to Maps of their queries.
+     * Maps classpath paths and file system <code>Path</code>s to their query sets.
      */
-    private final Map<String, Map<String, String>> queries = new HashMap<String, Map<String, String>>();
+    private final ConcurrentMap<Object, Queries> queries = new ConcurrentHashMap<>();
+    /**
+     * Maps the files of loaded query sets to the keys of those sets.
+     */
+    private final ConcurrentMap<Path, Set<Object>> files = new ConcurrentHashMap<>();
+    /**
+     * Maps watched directories to their watch keys.
+     */
+    private final Map<Path, WatchKey> directories = new HashMap<>();
+    private WatchService watcher;
 
     /**
      * QueryLoader constructor.
@@ -66,16 +110,80 @@ public class QueryLoader {
      *                                                    invalid
      * @see Properties
      */
-    public synchronized Map<String, String> load(String path) throws IOException {
+    public Map<String, String> load(String path) throws IOException {
+        return queries(path).sql;
+    }
+
+    /**
+     * Loads a Map of query names to statements parsed for their <code>#{name}</code> parameters, as
+     * {@link #load(String)} does for SQL values.
+     *
+     * @param path The path that the ClassLoader will use to find the file.
+     * @return Map of query names to parsed statements
+     * @throws IOException              if a file access error occurs
+     * @throws IllegalArgumentException if the ClassLoader can't find a file at the given path.
+     */
+    public Map<String, ParsedSql> loadParsed(String path) throws IOException {
+        return queries(path).parsed;
+    }
+
+    /**
+     * Loads a Map of query names to SQL values from the file system.  The Maps are cached by the absolute path of
+     * the file, and reloaded when the file changes while the loader is {@link #startWatching() watching}.  The
+     * properties file can be in either line-oriented or XML format.  XML formatted properties files must use a
+     * <code>.xml</code> file extension.
+     *
+     * @param file The properties file.
+     * @return Map of query names to SQL values
+     * @throws IOException if a file access error occurs
+     */
+    public Map<String, String> load(Path file) throws IOException {
+        return queries(file.toAbsolutePath().normalize()).sql;
+    }
+
+    /**
+     * Loads a Map of query names to statements parsed for their <code>#{name}</code> parameters from the file
+     * system, as {@link #load(Path)} does for SQL values.
+     *
+     * @param file The properties file.
+     * @return Map of query names to parsed statements
+     * @throws IOException if a file access error occurs
+     */
+    public Map<String, ParsedSql> loadParsed(Path file) throws IOException {
+        return queries(file.toAbsolutePath().normalize()).parsed;
+    }
 
-        Map<String, String> queryMap = this.queries.get(path);
+    /**
+     * Returns the query set of a key, loading it on the first call.
+     */
+    private Queries queries(Object key) throws IOException {
+        Queries loaded = this.queries.get(key);
+        if (loaded != null) {
+            return loaded;
+        }
 
-        if (queryMap == null) {
-            queryMap = this.loadQueries(path);
-            this.queries.put(path, queryMap);
+        try {
+            loaded = this.queries.computeIfAbsent(key, k -> {
+                try {
+                    return read(k);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Path file = key instanceof Path ? (Path) key : resourceFile((String) key);
+        if (file != null) {
+            this.files.computeIfAbsent(file, f -> ConcurrentHashMap.newKeySet()).add(key);
+            watch(file);
         }
+        return loaded;
+    }
 
-        return queryMap;
+    private Queries read(Object key) throws IOException {
+        Map<String, String> sql = key instanceof Path ? loadQueries((Path) key) : loadQueries((String) key);
+        return new Queries(sql);
     }
 
     /**
@@ -102,9 +210,25 @@ public class QueryLoader {
             throw new IllegalArgumentException(path + " not found.");
         }
 
+        return loadQueries(in, path);
+    }
+
+    /**
+     * Loads a set of named queries from the file system into a Map object.
+     *
+     * @param file The properties file.
+     * @return Map of query names to SQL values
+     * @throws IOException if a file access error occurs
+     * @see #loadQueries(String)
+     */
+    protected Map<String, String> loadQueries(Path file) throws IOException {
+        return loadQueries(Files.newInputStream(file), file.toString());
+    }
+
+    private Map<String, String> loadQueries(InputStream in, String name) throws IOException {
         Properties props = new Properties();
         try {
-            if (dotXml.matcher(path).matches()) {
+            if (dotXml.matcher(name).matches()) {
                 props.loadFromXML(in);
             } else {
                 props.load(in);
@@ -125,8 +249,154 @@ public class QueryLoader {
      *
      * @param path The path that the queries were loaded from.
      */
-    public synchronized void unload(String path) {
+    public void unload(String path) {
         this.queries.remove(path);
     }
 
+    /**
+     * Removes the queries for the given file from the cache.
+     *
+     * @param file The file that the queries were loaded from.
+     */
+    public void unload(Path file) {
+        this.queries.remove(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Starts reloading the files of loaded query sets, and of sets loaded later, when they change.  Does nothing
+     * if the loader is already watching.
+     *
+     * @throws IOException if the watch service cannot be created
+     */
+    public synchronized void startWatching() throws IOException {
+        if (this.watcher != null) {
+            return;
+        }
+        this.watcher = FileSystems.getDefault().newWatchService();
+        for (Path file : this.files.keySet()) {
+            watch(file);
+        }
+
+        WatchService watcher = this.watcher;
+        Thread thread = new Thread(() -> poll(watcher), "idealist-query-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops reloading changed files.
+     */
+    public synchronized void stopWatching() {
+        if (this.watcher == null) {
+            return;
+        }
+        try {
+            this.watcher.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close the query file watch service", e);
+        }
+        this.watcher = null;
+        this.directories.clear();
+    }
+
+    /**
+     * @return True if changed files are reloaded.
+     */
+    public synchronized boolean isWatching() {
+        return this.watcher != null;
+    }
+
+    /**
+     * Watches the directory of a file if the loader is watching.
+     */
+    private synchronized void watch(Path file) {
+        Path directory = file.getParent();
+        if (this.watcher == null || directory == null || this.directories.containsKey(directory)) {
+            return;
+        }
+        try {
+            this.directories.put(directory, directory.register(this.watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+        } catch (IOException e) {
+            logger.warn("Failed to watch query file directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Reloads the changed files reported by a watch service until it is closed.
+     */
+    private void poll(WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        this.files.keySet().stream().filter(file -> directory.equals(file.getParent()))
+                                .forEach(this::reload);
+                    } else {
+                        reload(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stopped watching
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reloads the query sets loaded from a file, keeping the previous queries of sets that fail to load.
+     */
+    private void reload(Path file) {
+        Set<Object> keys = this.files.get(file);
+        if (keys == null) {
+            return;
+        }
+        for (Object key : keys) {
+            if (!this.queries.containsKey(key)) {
+                continue;
+            }
+            try {
+                this.queries.replace(key, read(key));
+                logger.info("Reloaded queries from {}", file);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to reload queries from {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * @return The file of a classpath resource, or null if the resource is not a plain file.
+     */
+    private Path resourceFile(String path) {
+        URL url = getClass().getResource(path);
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI()).toAbsolutePath().normalize();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The queries of one file, as SQL values and as parsed statements.
+     */
+    private static final class Queries {
+        private final Map<String, String> sql;
+        private final Map<String, ParsedSql> parsed;
+
+        Queries(Map<String, String> sql) {
+            Map<String, ParsedSql> parsed = new LinkedHashMap<>(Math.max((int) (sql.size() / 0.75f) + 1, 16));
+            for (Map.Entry<String, String> query : sql.entrySet()) {
+                parsed.put(query.getKey(), NameParameter.parse(query.getValue()));
+            }
+            this.sql = sql;
+            this.parsed = Collections.unmodifiableMap(parsed);
+        }
+    }
 }
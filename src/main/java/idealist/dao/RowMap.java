@@ -0,0 +1,161 @@
+package idealist.dao;
+
+import java.io.Serializable;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable, case insensitive <code>Map</code> view of one row.  The row holds nothing but its column values;
+ * the column names and the lookup table are shared by all rows of a result set through a {@link Columns} index.
+ *
+ * <p>
+ * Keys match the behavior of the map <code>BasicRowProcessor</code> built per row before: they are looked up
+ * ignoring case, iterate in column order, and of several columns whose labels differ only in case the last one
+ * wins and takes the position of its last occurrence.
+ * </p>
+ *
+ * @see BasicRowProcessor#toMap(java.sql.ResultSet)
+ */
+final class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 6170924135792264533L;
+
+    private final Columns columns;
+    private final Object[] values;
+
+    /**
+     * Constructor for RowMap.
+     *
+     * @param columns The column index shared by all rows of the result set.
+     * @param values  The values of all columns, in column order.
+     */
+    RowMap(Columns columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return columns.keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && columns.position(key.toString()) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int position = columns.position(key.toString());
+        return position < 0 ? null : values[position];
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < columns.keys.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(columns.keys[i], values[columns.positions[i]]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return columns.keys.length;
+            }
+        };
+    }
+
+    /**
+     * The case insensitive column index of a result set, shared by all its rows.
+     */
+    static final class Columns implements Serializable {
+
+        private static final long serialVersionUID = -4817352218765904512L;
+
+        /**
+         * The number of columns of the result set.
+         */
+        final int count;
+        /**
+         * The visible keys, in iteration order.
+         */
+        private final String[] keys;
+        /**
+         * The column position, starting at 0, of each visible key.
+         */
+        private final int[] positions;
+        /**
+         * Column positions by lower case key.
+         */
+        private final Map<String, Integer> lookup;
+
+        private Columns(int count, String[] keys, int[] positions, Map<String, Integer> lookup) {
+            this.count = count;
+            this.keys = keys;
+            this.positions = positions;
+            this.lookup = lookup;
+        }
+
+        /**
+         * Indexes the columns of a result set.
+         *
+         * @param rsmd The <code>ResultSetMetaData</code> containing column information.
+         * @return The index.
+         * @throws SQLException if a database access error occurs
+         */
+        static Columns of(ResultSetMetaData rsmd) throws SQLException {
+            int cols = rsmd.getColumnCount();
+            String[] labels = new String[cols];
+            // re-inserting moves a duplicate to the position of its last occurrence
+            LinkedHashMap<String, Integer> visible = new LinkedHashMap<>();
+            for (int i = 0; i < cols; i++) {
+                labels[i] = BeanProcessor.columnLabel(rsmd, i + 1);
+                String lower = labels[i].toLowerCase(Locale.ENGLISH);
+                visible.remove(lower);
+                visible.put(lower, i);
+            }
+
+            String[] keys = new String[visible.size()];
+            int[] positions = new int[visible.size()];
+            int i = 0;
+            for (int position : visible.values()) {
+                keys[i] = labels[position];
+                positions[i++] = position;
+            }
+            return new Columns(cols, keys, positions, new HashMap<>(visible));
+        }
+
+        int position(String key) {
+            Integer position = lookup.get(key.toLowerCase(Locale.ENGLISH));
+            return position == null ? -1 : position;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package idealist.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Implementations of this interface convert the current row of a ResultSet into an object.
+ *
+ * @param <T> the target type a row will be converted to.
+ * @see JdbcAccessor#stream(String, RowMapper, Object...)
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Turn the current row of the <code>ResultSet</code> into an Object.
+     *
+     * @param rs The <code>ResultSet</code> positioned on a valid row.  Implementations must not
+     *           move the cursor.
+     * @return An Object initialized with the row's data, may be <code>null</code>.
+     * @throws SQLException if a database access error occurs
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,275 @@
+package idealist.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of <code>PreparedStatement</code>s keyed by
+ * connection, SQL text and generated keys mode.
+ *
+ * <p>
+ * Statements are checked out of the cache by {@link #borrow(Connection, String, int)} and handed back by
+ * {@link #release(PreparedStatement)} instead of being closed, so repeated executions of the same SQL on the
+ * same connection reuse the driver's prepared handle.  A statement is never handed out twice at the same time.
+ * When the cache grows beyond its maximum size the least recently used idle statement is closed.  All statements
+ * of a connection are closed by {@link #close(Connection)}, which <code>JdbcAccessor</code> calls before it
+ * closes a connection.  Callers that close connections they passed in themselves should call it as well;
+ * otherwise the orphaned statements are discarded when they are found closed or evicted.
+ * </p>
+ *
+ * <p>
+ * <code>JdbcAccessor</code> keys statements by the connection underneath a {@link PooledDataSource} handle and
+ * keeps them open when the handle is closed, so that statements are reused across borrows of the same pooled
+ * connection; the pool closes them when it closes that connection.  Any other connection, including handles of
+ * other pools and delegating wrappers, is keyed by itself and its statements are closed with it; those are
+ * only reused while the caller holds the connection or within
+ * {@link AbstractJdbcAccessor#inTransaction(java.util.function.Supplier)}.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @see StatementConfiguration.Builder#statementCacheSize(Integer)
+ */
+public class StatementCache {
+
+    /**
+     * The generated keys mode used for statements prepared without one.
+     */
+    public static final int NO_GENERATED_KEYS_MODE = -1;
+
+    /**
+     * The maximum number of idle statements kept open.
+     */
+    private final int maxSize;
+
+    /**
+     * Idle statements in access order, the eldest entry is evicted first.
+     */
+    private final LinkedHashMap<Key, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Statements currently checked out, mapped to the key they are returned under.
+     */
+    private final Map<PreparedStatement, Key> borrowed = new IdentityHashMap<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor for StatementCache.
+     *
+     * @param maxSize The maximum number of idle statements kept open, must be positive.
+     */
+    public StatementCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks out a cached statement.
+     *
+     * @param conn         The connection the statement was prepared on.
+     * @param sql          The SQL text of the statement.
+     * @param returnedKeys The generated keys mode, or {@link #NO_GENERATED_KEYS_MODE}.
+     * @return An open statement, or <code>null</code> if none is cached.
+     */
+    public PreparedStatement borrow(Connection conn, String sql, int returnedKeys) {
+        Key key = new Key(conn, sql, returnedKeys);
+        synchronized (this) {
+            PreparedStatement ps = idle.remove(key);
+            // the statement may have been closed behind our back, e.g. together with its connection
+            if (ps == null || isClosed(ps)) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            borrowed.put(ps, key);
+            return ps;
+        }
+    }
+
+    /**
+     * Registers a freshly prepared statement as checked out, so that it is kept open on
+     * {@link #release(PreparedStatement)}.
+     *
+     * @param ps           The statement.
+     * @param conn         The connection the statement was prepared on.
+     * @param sql          The SQL text of the statement.
+     * @param returnedKeys The generated keys mode, or {@link #NO_GENERATED_KEYS_MODE}.
+     */
+    public synchronized void register(PreparedStatement ps, Connection conn, String sql, int returnedKeys) {
+        borrowed.put(ps, new Key(conn, sql, returnedKeys));
+    }
+
+    /**
+     * Hands a checked out statement back to the cache.  The parameters and batch of the statement are cleared; the
+     * statement is closed instead if that fails, if an equivalent statement is already idle or if it causes
+     * the least recently used statement to be evicted.
+     *
+     * @param ps The statement.
+     * @return <code>true</code> if the statement belongs to this cache and has been dealt with,
+     * <code>false</code> if the caller should close it.
+     */
+    public boolean release(PreparedStatement ps) {
+        Key key;
+        synchronized (this) {
+            key = borrowed.remove(ps);
+        }
+        if (key == null) {
+            return false;
+        }
+
+        try {
+            ps.clearParameters();
+            // rows added before a failed batch must not run with the next one
+            ps.clearBatch();
+        } catch (SQLException e) {
+            JdbcUtils.closeQuietly(ps);
+            return true;
+        }
+
+        List<PreparedStatement> evicted = new ArrayList<>(1);
+        synchronized (this) {
+            PreparedStatement previous = idle.put(key, ps);
+            if (previous != null) {
+                evicted.add(previous);
+            }
+            Iterator<PreparedStatement> it = idle.values().iterator();
+            while (idle.size() > maxSize && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+                evictionCount++;
+            }
+        }
+        closeAll(evicted);
+        return true;
+    }
+
+    /**
+     * Closes all idle statements of a connection and forgets the checked out ones, which are then closed on
+     * release.
+     *
+     * @param conn The connection that is about to be closed.
+     */
+    public void close(Connection conn) {
+        List<PreparedStatement> closing = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Key, PreparedStatement>> it = idle.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, PreparedStatement> entry = it.next();
+                if (entry.getKey().conn == conn) {
+                    closing.add(entry.getValue());
+                    it.remove();
+                }
+            }
+            borrowed.values().removeIf(key -> key.conn == conn);
+        }
+        closeAll(closing);
+    }
+
+    /**
+     * Closes all idle statements and forgets the checked out ones.
+     */
+    public void clear() {
+        List<PreparedStatement> closing;
+        synchronized (this) {
+            closing = new ArrayList<>(idle.values());
+            idle.clear();
+            borrowed.clear();
+        }
+        closeAll(closing);
+    }
+
+    /**
+     * @return The maximum number of idle statements kept open.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return The number of idle statements.
+     */
+    public synchronized int size() {
+        return idle.size();
+    }
+
+    /**
+     * @return The number of borrows that found an open statement.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of borrows that had to prepare a new statement.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of idle statements closed to keep the cache within its maximum size.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private static boolean isClosed(PreparedStatement ps) {
+        try {
+            return ps.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeAll(List<PreparedStatement> statements) {
+        for (PreparedStatement ps : statements) {
+            JdbcUtils.closeQuietly(ps);
+        }
+    }
+
+    /**
+     * Cache key, connections are compared by identity.
+     */
+    private static final class Key {
+        private final Connection conn;
+        private final String sql;
+        private final int returnedKeys;
+
+        Key(Connection conn, String sql, int returnedKeys) {
+            this.conn = conn;
+            this.sql = sql;
+            this.returnedKeys = returnedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return conn == other.conn && returnedKeys == other.returnedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(conn) * 31 + sql.hashCode()) * 31 + returnedKeys;
+        }
+    }
+}
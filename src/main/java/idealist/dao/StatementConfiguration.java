@@ -11,6 +11,8 @@ public class StatementConfiguration {
     private final Integer maxFieldSize;
     private final Integer maxRows;
     private final Integer queryTimeout;
+    private final Integer statementCacheSize;
+    private final StatementListener statementListener;
 
     /**
      * Constructor for <code>StatementConfiguration</code>.  For more flexibility, use {@link Builder}.
@@ -23,11 +25,47 @@ public class StatementConfiguration {
      */
     public StatementConfiguration(Integer fetchDirection, Integer fetchSize, Integer maxFieldSize, Integer maxRows,
                                   Integer queryTimeout) {
+        this(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout, null);
+    }
+
+    /**
+     * Constructor for <code>StatementConfiguration</code>.  For more flexibility, use {@link Builder}.
+     *
+     * @param fetchDirection     The direction for fetching rows from database tables.
+     * @param fetchSize          The number of rows that should be fetched from the database when more rows are needed.
+     * @param maxFieldSize       The maximum number of bytes that can be returned for character and binary column values.
+     * @param maxRows            The maximum number of rows that a <code>ResultSet</code> can produce.
+     * @param queryTimeout       The number of seconds the driver will wait for execution.
+     * @param statementCacheSize The maximum number of prepared statements kept open for reuse, or null to prepare
+     *                           a new statement on every execution.
+     */
+    public StatementConfiguration(Integer fetchDirection, Integer fetchSize, Integer maxFieldSize, Integer maxRows,
+                                  Integer queryTimeout, Integer statementCacheSize) {
+        this(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout, statementCacheSize, null);
+    }
+
+    /**
+     * Constructor for <code>StatementConfiguration</code>.  For more flexibility, use {@link Builder}.
+     *
+     * @param fetchDirection     The direction for fetching rows from database tables.
+     * @param fetchSize          The number of rows that should be fetched from the database when more rows are needed.
+     * @param maxFieldSize       The maximum number of bytes that can be returned for character and binary column values.
+     * @param maxRows            The maximum number of rows that a <code>ResultSet</code> can produce.
+     * @param queryTimeout       The number of seconds the driver will wait for execution.
+     * @param statementCacheSize The maximum number of prepared statements kept open for reuse, or null to prepare
+     *                           a new statement on every execution.
+     * @param statementListener  The listener receiving every executed statement, or null to not time statements.
+     */
+    public StatementConfiguration(Integer fetchDirection, Integer fetchSize, Integer maxFieldSize, Integer maxRows,
+                                  Integer queryTimeout, Integer statementCacheSize,
+                                  StatementListener statementListener) {
         this.fetchDirection = fetchDirection;
         this.fetchSize = fetchSize;
         this.maxFieldSize = maxFieldSize;
         this.maxRows = maxRows;
         this.queryTimeout = queryTimeout;
+        this.statementCacheSize = statementCacheSize;
+        this.statementListener = statementListener;
     }
 
     /**
@@ -120,6 +158,42 @@ public class StatementConfiguration {
         return queryTimeout != null;
     }
 
+    /**
+     * Get the statement cache size.
+     *
+     * @return The maximum number of cached prepared statements or null if not set.
+     */
+    public Integer getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Whether statement cache size is set.
+     *
+     * @return true if set, false otherwise.
+     */
+    public boolean isStatementCacheSizeSet() {
+        return statementCacheSize != null;
+    }
+
+    /**
+     * Get the statement listener.
+     *
+     * @return The listener receiving every executed statement or null if not set.
+     */
+    public StatementListener getStatementListener() {
+        return statementListener;
+    }
+
+    /**
+     * Whether statement listener is set.
+     *
+     * @return true if set, false otherwise.
+     */
+    public boolean isStatementListenerSet() {
+        return statementListener != null;
+    }
+
     /**
      * Builder class for <code>StatementConfiguration</code> for more flexible construction.
      */
@@ -129,6 +203,8 @@ public class StatementConfiguration {
         private Integer maxRows;
         private Integer queryTimeout;
         private Integer maxFieldSize;
+        private Integer statementCacheSize;
+        private StatementListener statementListener;
 
         public Builder fetchDirection(final Integer fetchDirection) {
             this.fetchDirection = fetchDirection;
@@ -155,8 +231,32 @@ public class StatementConfiguration {
             return this;
         }
 
+        /**
+         * Enables the per-connection {@link idealist.dao.StatementCache} of the accessor.
+         *
+         * @param statementCacheSize The maximum number of prepared statements kept open for reuse.
+         * @return this builder
+         */
+        public Builder statementCacheSize(final Integer statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Times every statement of the accessor and passes it to a listener, such as
+         * {@link idealist.dao.metrics.SqlMetrics}.
+         *
+         * @param statementListener The listener receiving every executed statement.
+         * @return this builder
+         */
+        public Builder statementListener(final StatementListener statementListener) {
+            this.statementListener = statementListener;
+            return this;
+        }
+
         public StatementConfiguration build() {
-            return new StatementConfiguration(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout);
+            return new StatementConfiguration(fetchDirection, fetchSize, maxFieldSize, maxRows, queryTimeout,
+                    statementCacheSize, statementListener);
         }
     }
 }
@@ -0,0 +1,252 @@
+package idealist.dao;
+
+import idealist.dao.wrappers.DelegatingResultSet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A statement executed by a <code>JdbcAccessor</code>, as passed to a {@link StatementListener}.
+ * <p>
+ * The time of a statement is split into five phases: acquiring the connection from the <code>DataSource</code>,
+ * which is zero when the caller passed the connection; preparing the statement and binding its parameters;
+ * executing it; fetching and mapping the results with the handler; and closing the result set, the statement and
+ * the connection.  Streaming batches bind each chunk just before executing it and count both as execution.
+ */
+public final class StatementEvent {
+
+    /**
+     * The kind of statement.
+     */
+    public enum Kind {
+        SELECT, UPDATE, INSERT, BATCH, INSERT_BATCH, CALL
+    }
+
+    private final Kind kind;
+    private final String sql;
+    private final Object[] parameters;
+    private final Class<?> handlerClass;
+    private final long acquireNanos;
+    private long mark;
+    private long prepareNanos;
+    private long executeNanos;
+    private long fetchNanos;
+    private long closeNanos;
+    private long rows;
+    private boolean succeeded;
+    private SQLException error;
+
+    StatementEvent(Kind kind, String sql, Object[] parameters, Class<?> handlerClass, long acquireNanos) {
+        this.kind = kind;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.handlerClass = handlerClass;
+        this.acquireNanos = acquireNanos;
+        this.mark = System.nanoTime();
+    }
+
+    /**
+     * @return The kind of statement.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The SQL, as passed to the accessor.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The replacement parameters, or null for batches.  Do not modify them.
+     */
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return The class of the <code>ResultSetHandler</code> of queries, inserts and calls, or null.
+     */
+    public Class<?> getHandlerClass() {
+        return handlerClass;
+    }
+
+    /**
+     * @return The time spent acquiring the connection, in nanoseconds.
+     */
+    public long getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    /**
+     * @return The time spent preparing the statement and binding its parameters, in nanoseconds.
+     */
+    public long getPrepareNanos() {
+        return prepareNanos;
+    }
+
+    /**
+     * @return The time spent executing the statement, in nanoseconds.
+     */
+    public long getExecuteNanos() {
+        return executeNanos;
+    }
+
+    /**
+     * @return The time spent fetching and mapping the results, in nanoseconds.
+     */
+    public long getFetchNanos() {
+        return fetchNanos;
+    }
+
+    /**
+     * @return The time spent closing the result set, the statement and the connection, in nanoseconds.
+     */
+    public long getCloseNanos() {
+        return closeNanos;
+    }
+
+    /**
+     * @return The time of all phases, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return acquireNanos + prepareNanos + executeNanos + fetchNanos + closeNanos;
+    }
+
+    /**
+     * Returns the rows of the statement: the update count of updates, the sum of the update counts of batches,
+     * and for queries the rows the handler read from the result sets.
+     *
+     * @return The number of rows.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return True if the statement failed.
+     */
+    public boolean isFailed() {
+        return !succeeded;
+    }
+
+    /**
+     * @return The database error the statement failed with, or null if it succeeded or failed in a handler.
+     */
+    public SQLException getError() {
+        return error;
+    }
+
+    /**
+     * Ends the prepare phase.
+     */
+    void prepared() {
+        long now = System.nanoTime();
+        prepareNanos += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Ends the execution phase.
+     */
+    void executed() {
+        long now = System.nanoTime();
+        executeNanos += now - mark;
+        mark = now;
+    }
+
+    /**
+     * Ends the execution phase of a statement without results.
+     */
+    void executed(long rows) {
+        executed();
+        this.rows = rows;
+        this.succeeded = true;
+    }
+
+    /**
+     * Ends the execution phase of a batch, adding the update counts of its last chunk.
+     */
+    void executed(int[] counts) {
+        executed();
+        this.rows += sum(counts);
+        this.succeeded = true;
+    }
+
+    /**
+     * Wraps the result set of a query so that the rows the handler reads are counted.
+     */
+    ResultSet counting(ResultSet rs) {
+        return new DelegatingResultSet(rs) {
+            @Override
+            public boolean next() throws SQLException {
+                boolean more = super.next();
+                if (more) {
+                    rows++;
+                }
+                return more;
+            }
+        };
+    }
+
+    /**
+     * Ends the fetch phase of a query, whose rows were counted by {@link #counting(ResultSet)}.
+     */
+    void fetched() {
+        long now = System.nanoTime();
+        fetchNanos += now - mark;
+        mark = now;
+        this.succeeded = true;
+    }
+
+    /**
+     * Ends the fetch phase of the generated keys of an insert.
+     */
+    void fetched(long rows) {
+        long now = System.nanoTime();
+        fetchNanos += now - mark;
+        mark = now;
+        this.rows = rows;
+        this.succeeded = true;
+    }
+
+    /**
+     * Adds the update counts of a chunk of a streaming batch.
+     */
+    void chunkExecuted(int[] counts) {
+        this.rows += sum(counts);
+    }
+
+    void failed(SQLException error) {
+        this.error = error;
+    }
+
+    /**
+     * Ends the close phase and passes the event to a listener.
+     */
+    void complete(StatementListener listener) {
+        closeNanos = System.nanoTime() - mark;
+        try {
+            listener.statementCompleted(this);
+        } catch (RuntimeException e) { // NOPMD
+            // metrics must not fail a statement that has run
+        }
+    }
+
+    /**
+     * @return The sum of the positive update counts.
+     */
+    static long sum(int[] counts) {
+        long sum = 0;
+        if (counts != null) {
+            for (int count : counts) {
+                if (count > 0) {
+                    sum += count;
+                }
+            }
+        }
+        return sum;
+    }
+}
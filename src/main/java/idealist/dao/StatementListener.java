@@ -0,0 +1,42 @@
+package idealist.dao;
+
+/**
+ * Receives every statement executed by a <code>JdbcAccessor</code>, once it has completed, with the time spent
+ * in each phase.  Set one with {@link StatementConfiguration.Builder#statementListener(StatementListener)}; an
+ * accessor without a listener does not time its statements.
+ * <p>
+ * Listeners are called on the thread that executed the statement, after its connection is released, and must be
+ * thread safe and fast.  Exceptions thrown by a listener are ignored.
+ */
+@FunctionalInterface
+public interface StatementListener {
+
+    /**
+     * Called after a statement has completed, successfully or not.
+     *
+     * @param event The statement.
+     */
+    void statementCompleted(StatementEvent event);
+
+    /**
+     * Returns a listener calling several listeners in order.
+     *
+     * @param listeners The listeners.
+     * @return The listener.
+     */
+    static StatementListener of(StatementListener... listeners) {
+        StatementListener[] copy = listeners.clone();
+        if (copy.length == 1) {
+            return copy[0];
+        }
+        return event -> {
+            for (StatementListener listener : copy) {
+                try {
+                    listener.statementCompleted(event);
+                } catch (RuntimeException e) { // NOPMD
+                    // one listener must not keep the others from seeing the statement
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package idealist.dao;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The connections bound to the current thread by {@link AbstractJdbcAccessor#inTransaction(java.util.function.Supplier)},
+ * one per <code>DataSource</code>.  Accessors retrieving connections from a <code>DataSource</code> with a bound
+ * connection use that connection and leave it open.
+ */
+final class TransactionBinding {
+
+    private static final ThreadLocal<TransactionBinding> current = new ThreadLocal<>();
+
+    private final DataSource dataSource;
+    private final Connection conn;
+    private final TransactionBinding outer;
+    private Map<Object, Runnable> completions;
+
+    private TransactionBinding(DataSource dataSource, Connection conn, TransactionBinding outer) {
+        this.dataSource = dataSource;
+        this.conn = conn;
+        this.outer = outer;
+    }
+
+    /**
+     * @param dataSource The <code>DataSource</code>.
+     * @return The connection of the <code>DataSource</code> bound to the current thread, or null.
+     */
+    static Connection connection(DataSource dataSource) {
+        for (TransactionBinding binding = current.get(); binding != null; binding = binding.outer) {
+            if (binding.dataSource == dataSource) {
+                return binding.conn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param conn The connection.
+     * @return True if the connection is bound to the current thread.
+     */
+    static boolean isBound(Connection conn) {
+        for (TransactionBinding binding = current.get(); binding != null; binding = binding.outer) {
+            if (binding.conn == conn) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers an action to run when the transaction of a connection bound to the current thread completes.
+     *
+     * Actions registered again under an equal key run once.
+     *
+     * @param conn   The connection.
+     * @param key    The key of the action.
+     * @param action The action, run after the commit or rollback.
+     * @return False if the connection is not bound to the current thread.
+     */
+    static boolean afterCompletion(Connection conn, Object key, Runnable action) {
+        for (TransactionBinding binding = current.get(); binding != null; binding = binding.outer) {
+            if (binding.conn == conn) {
+                if (binding.completions == null) {
+                    binding.completions = new LinkedHashMap<>();
+                }
+                binding.completions.putIfAbsent(key, action);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Binds a connection of a <code>DataSource</code> to the current thread.
+     *
+     * @param dataSource The <code>DataSource</code> the connection was retrieved from.
+     * @param conn       The connection.
+     * @return The binding, to be {@link #unbind() unbound} by the same thread.
+     */
+    static TransactionBinding bind(DataSource dataSource, Connection conn) {
+        TransactionBinding binding = new TransactionBinding(dataSource, conn, current.get());
+        current.set(binding);
+        return binding;
+    }
+
+    /**
+     * Restores the bindings that were current when this one was bound.
+     */
+    void unbind() {
+        if (outer == null) {
+            current.remove();
+        } else {
+            current.set(outer);
+        }
+    }
+
+    /**
+     * Runs the actions registered by {@link #afterCompletion(Connection, Object, Runnable)}.
+     */
+    void complete() {
+        if (completions != null) {
+            completions.values().forEach(Runnable::run);
+            completions = null;
+        }
+    }
+}
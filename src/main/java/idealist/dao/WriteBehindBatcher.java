@@ -0,0 +1,365 @@
+package idealist.dao;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects individual INSERT, UPDATE and DELETE statements and writes them behind the caller as JDBC batches.
+ * <p>
+ * Updates are grouped by SQL text.  A group is flushed as one batch through
+ * {@link AsyncJdbcAccessor#batchAsync(String, Object[][])} as soon as it holds <code>batchSize</code> updates, or
+ * <code>maxDelay</code> after its first update, whichever comes first.  Each update gets a future of its own
+ * update count, completed when its batch has run.  When a batch fails with a <code>BatchUpdateException</code>,
+ * the updates the driver reports as executed still complete with their counts, since they are committed in
+ * auto-commit mode.
+ * <p>
+ * At most <code>capacity</code> updates are queued or in a running batch.  Further updates block until a batch
+ * completes, so producers are slowed down to the pace of the database instead of filling the heap.  At most
+ * {@link AsyncJdbcAccessor#getMaxInFlight()} batches run at a time, further batches wait in line for one to
+ * finish without blocking the thread that flushed them, and a batch rejected because other calls hold the limit
+ * of the accessor is retried.  Closing the
+ * batcher flushes all groups and waits for their batches.  Batches run on connections from the
+ * <code>DataSource</code> of the accessor, which must be in auto-commit mode.
+ * <p>
+ * This class is thread safe.
+ */
+public class WriteBehindBatcher implements AutoCloseable {
+
+    /**
+     * The longest wait before a rejected batch is submitted again.
+     */
+    private static final long MAX_RETRY_DELAY_MILLIS = 100;
+
+    private final AsyncJdbcAccessor accessor;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final int maxPending;
+    private final Semaphore capacity;
+    /**
+     * The permits of the batches running, or null when the accessor does not limit its calls in flight.
+     */
+    private final Semaphore flushes;
+    /**
+     * The flushed batches waiting for a permit of {@link #flushes}.
+     */
+    private final Queue<Batch> waiting = new ConcurrentLinkedQueue<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<?>> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Constructor for WriteBehindBatcher.
+     *
+     * @param accessor  The accessor executing the batches.
+     * @param batchSize The number of updates of one SQL text that are flushed at once.
+     * @param maxDelay  The longest time an update waits for its batch to fill up.
+     * @param unit      The unit of <code>maxDelay</code>.
+     * @param capacity  The maximum number of updates queued or in a running batch, at least
+     *                  <code>batchSize</code>.
+     */
+    public WriteBehindBatcher(AsyncJdbcAccessor accessor, int batchSize, long maxDelay, TimeUnit unit, int capacity) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (maxDelay <= 0) {
+            throw new IllegalArgumentException("maxDelay must be positive: " + maxDelay);
+        }
+        if (capacity < batchSize) {
+            throw new IllegalArgumentException("capacity must be at least batchSize: " + capacity);
+        }
+        this.accessor = accessor;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.maxPending = capacity;
+        this.capacity = new Semaphore(capacity);
+        this.flushes = accessor.getMaxInFlight() == Integer.MAX_VALUE ? null : new Semaphore(accessor.getMaxInFlight());
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "idealist-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queues an INSERT, UPDATE, or DELETE statement, blocking while the batcher is at capacity.
+     *
+     * @param sql    The SQL to execute.
+     * @param params The query replacement parameters.
+     * @return A future of the number of rows updated by this statement.  It fails with a
+     * <code>RejectedExecutionException</code> if the batcher is closed or the caller is interrupted while
+     * waiting for capacity.
+     */
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        if (sql == null) {
+            throw new SQLRuntimeException("Null SQL statement");
+        }
+        if (closed) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("WriteBehindBatcher is closed"));
+        }
+
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Interrupted waiting for capacity", e));
+        }
+
+        Pending pending = new Pending(params);
+        if (!groups.computeIfAbsent(sql, Group::new).add(pending)) {
+            capacity.release();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("WriteBehindBatcher is closed"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * Flushes all groups without waiting for their batches.
+     *
+     * @return A future completing when the batches flushed by this call have run.
+     */
+    public CompletableFuture<Void> flush() {
+        List<CompletableFuture<?>> flushed = new ArrayList<>();
+        for (Group group : groups.values()) {
+            CompletableFuture<?> batch = group.flush();
+            if (batch != null) {
+                flushed.add(batch);
+            }
+        }
+        return CompletableFuture.allOf(flushed.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * @return The number of updates queued or in a running batch.
+     */
+    public int getPendingCount() {
+        return maxPending - capacity.availablePermits();
+    }
+
+    /**
+     * Stops accepting updates, flushes all groups and waits until every batch has run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Executes a batch and completes the futures of its updates, or queues it while the limit of batches running
+     * is reached.  Never blocks, since the caller may be the timer thread serving the deadlines of all groups.
+     */
+    private void execute(Batch batch) {
+        if (flushes == null) {
+            submit(batch, 1);
+            return;
+        }
+        waiting.add(batch);
+        submitWaiting();
+    }
+
+    /**
+     * Submits waiting batches while permits are free.  Called after queueing a batch and after releasing a permit,
+     * so a batch queued while the last running batch completes is not left behind.
+     */
+    private void submitWaiting() {
+        while (!waiting.isEmpty() && flushes.tryAcquire()) {
+            Batch batch = waiting.poll();
+            if (batch == null) {
+                flushes.release();
+            } else {
+                submit(batch, 1);
+            }
+        }
+    }
+
+    /**
+     * Submits a batch to the accessor, retrying after <code>delayMillis</code> if it is rejected while other calls
+     * hold the limit of the accessor.
+     */
+    private void submit(Batch batch, long delayMillis) {
+        accessor.batchAsync(batch.sql, batch.params).whenComplete((rows, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException && accessor.getInFlight() > 0) {
+                // the batch keeps its permit while it waits to be retried
+                CompletableFuture.runAsync(
+                        () -> submit(batch, Math.min(delayMillis * 2, MAX_RETRY_DELAY_MILLIS)),
+                        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+                return;
+            }
+            if (flushes != null) {
+                flushes.release();
+                submitWaiting();
+            }
+            capacity.release(batch.updates.size());
+            complete(batch.updates, rows, cause);
+            running.remove(batch.done);
+            if (cause != null) {
+                batch.done.completeExceptionally(cause);
+            } else {
+                batch.done.complete(rows);
+            }
+        });
+    }
+
+    /**
+     * Completes the futures of the updates of a batch.  After a <code>BatchUpdateException</code>, the updates with
+     * a count complete with it and the others fail.
+     */
+    private static void complete(List<Pending> updates, int[] rows, Throwable e) {
+        if (e != null) {
+            BatchUpdateException batchFailure = batchUpdateException(e);
+            rows = batchFailure == null ? null : batchFailure.getUpdateCounts();
+        }
+        for (int i = 0; i < updates.size(); i++) {
+            CompletableFuture<Integer> future = updates.get(i).future;
+            if (rows != null && i < rows.length && rows[i] != Statement.EXECUTE_FAILED) {
+                future.complete(rows[i]);
+            } else if (e != null) {
+                future.completeExceptionally(e);
+            } else {
+                future.completeExceptionally(new SQLRuntimeException("No update count for batch row " + i));
+            }
+        }
+    }
+
+    /**
+     * Finds a <code>BatchUpdateException</code> among the causes of an exception and their next exceptions, where
+     * {@link AbstractJdbcAccessor#rethrow(SQLException, String, Object...)} keeps the driver's exception.
+     */
+    private static BatchUpdateException batchUpdateException(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                for (SQLException next = (SQLException) cause; next != null; next = next.getNextException()) {
+                    if (next instanceof BatchUpdateException) {
+                        return (BatchUpdateException) next;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The updates of one batch, and a future completing when it has run.
+     */
+    private static final class Batch {
+        private final String sql;
+        private final List<Pending> updates;
+        private final Object[][] params;
+        private final CompletableFuture<int[]> done = new CompletableFuture<>();
+
+        Batch(String sql, List<Pending> updates) {
+            this.sql = sql;
+            this.updates = updates;
+            this.params = new Object[updates.size()][];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = updates.get(i).params;
+            }
+        }
+    }
+
+    /**
+     * An update waiting for its batch.
+     */
+    private static final class Pending {
+        private final Object[] params;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Pending(Object[] params) {
+            this.params = params;
+        }
+    }
+
+    /**
+     * The queued updates of one SQL text.  A group holds a single batch: once drained it is removed from
+     * {@link #groups}, and later updates of its SQL text start a new group.
+     */
+    private final class Group {
+        private final String sql;
+        private List<Pending> queue;
+        private ScheduledFuture<?> deadline;
+        private boolean drained;
+
+        Group(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Queues an update, flushing the group when it is full.
+         *
+         * @return False if the batcher is closed.
+         */
+        boolean add(Pending pending) {
+            Batch full = null;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (drained) {
+                    return groups.computeIfAbsent(sql, Group::new).add(pending);
+                }
+                if (queue == null) {
+                    queue = new ArrayList<>(batchSize);
+                    deadline = timer.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+                }
+                queue.add(pending);
+                if (queue.size() >= batchSize) {
+                    full = drain();
+                }
+            }
+            if (full != null) {
+                execute(full);
+            }
+            return true;
+        }
+
+        /**
+         * @return The future of the flushed batch, or null if the group was empty.
+         */
+        CompletableFuture<?> flush() {
+            Batch batch;
+            synchronized (this) {
+                if (queue == null) {
+                    return null;
+                }
+                batch = drain();
+            }
+            execute(batch);
+            return batch.done;
+        }
+
+        /**
+         * Takes the queued updates as a batch, registered as running before the lock of the group is released so
+         * that {@link #close()} waits for it, and removes the group.
+         */
+        private Batch drain() {
+            Batch batch = new Batch(sql, queue);
+            queue = null;
+            deadline.cancel(false);
+            deadline = null;
+            drained = true;
+            groups.remove(sql, this);
+            running.add(batch.done);
+            return batch;
+        }
+    }
+}
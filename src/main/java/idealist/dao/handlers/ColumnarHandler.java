@@ -0,0 +1,72 @@
+package idealist.dao.handlers;
+
+import idealist.dao.ResultSetHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <code>ResultSetHandler</code> implementation that reads a <code>ResultSet</code> column by column into a
+ * {@link ColumnarResult}.  Numeric columns end up in primitive arrays and character columns are dictionary
+ * encoded, so large results of a few columns take a fraction of the memory of row oriented handlers and can be
+ * aggregated without unboxing.  This class is thread safe.
+ *
+ * @see ColumnarResult
+ */
+public class ColumnarHandler implements ResultSetHandler<ColumnarResult> {
+
+    /**
+     * The initial number of rows the column arrays hold when the fetch size gives no better estimate.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The initial number of rows, or 0 to estimate it from the fetch size.
+     */
+    private final int initialCapacity;
+
+    /**
+     * Creates a new instance of ColumnarHandler that sizes its arrays for at least the fetch size of the
+     * <code>ResultSet</code> and doubles them as needed.
+     */
+    public ColumnarHandler() {
+        this(0);
+    }
+
+    /**
+     * Creates a new instance of ColumnarHandler.
+     *
+     * @param initialCapacity The number of rows the arrays are first sized for, or 0 to use the fetch size of the
+     *                        <code>ResultSet</code>.  Arrays double whenever they are full.
+     */
+    public ColumnarHandler(int initialCapacity) {
+        super();
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity cannot be negative: " + initialCapacity);
+        }
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * Reads all rows of a <code>ResultSet</code> into a <code>ColumnarResult</code>.
+     *
+     * @param rs <code>ResultSet</code> to process.
+     * @return The columnar result, never <code>null</code>.
+     * @throws SQLException if a database access error occurs
+     * @see idealist.dao.ResultSetHandler#handle(ResultSet)
+     */
+    @Override
+    public ColumnarResult handle(ResultSet rs) throws SQLException {
+        int capacity = this.initialCapacity;
+        if (capacity == 0) {
+            capacity = Math.max(rs.getFetchSize(), DEFAULT_CAPACITY);
+        }
+
+        ColumnarResult result = new ColumnarResult(rs.getMetaData(), capacity);
+        while (rs.next()) {
+            result.add(rs);
+        }
+        result.complete();
+        return result;
+    }
+}
@@ -0,0 +1,556 @@
+package idealist.dao.handlers;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A <code>ResultSet</code> read column by column into primitive arrays, created by {@link ColumnarHandler}.
+ * <p>
+ * Integer columns are stored in <code>int[]</code>, big integer and integral decimal columns in
+ * <code>long[]</code>, floating point columns in <code>double[]</code> and character columns as dictionary codes
+ * into the distinct values of the column.  Other columns keep the objects returned by <code>getObject</code>.
+ * SQL NULLs are recorded in a bitmap per column; the primitive getters return 0 for them.
+ * <p>
+ * Rows are addressed by index, starting at 0, columns by JDBC position, starting at 1.  This class is not
+ * thread safe while it is being filled, and safe to read once {@link ColumnarHandler#handle(ResultSet)}
+ * returned it.
+ *
+ * @see ColumnarHandler
+ */
+public final class ColumnarResult {
+
+    /**
+     * How the values of a column are stored.
+     */
+    public enum Kind {
+        /**
+         * <code>int</code> values: TINYINT, SMALLINT and INTEGER columns.
+         */
+        INT,
+        /**
+         * <code>long</code> values: BIGINT columns and DECIMAL or NUMERIC columns of scale 0 and at most 18 digits.
+         */
+        LONG,
+        /**
+         * <code>double</code> values: REAL, FLOAT and DOUBLE columns.
+         */
+        DOUBLE,
+        /**
+         * Dictionary encoded <code>String</code> values: CHAR, VARCHAR and their long and national variants.
+         */
+        STRING,
+        /**
+         * The objects returned by <code>getObject</code>: all other columns.
+         */
+        OBJECT
+    }
+
+    /**
+     * The largest array length that is safe to allocate.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final Column[] columns;
+    private final Map<String, Integer> positions;
+    private int size;
+    private int capacity;
+
+    ColumnarResult(ResultSetMetaData rsmd, int capacity) throws SQLException {
+        int cols = rsmd.getColumnCount();
+        this.columns = new Column[cols];
+        this.positions = new HashMap<>(cols * 2);
+        this.capacity = Math.max(capacity, 1);
+        for (int i = 0; i < cols; i++) {
+            String label = rsmd.getColumnLabel(i + 1);
+            if (label == null || label.isEmpty()) {
+                label = rsmd.getColumnName(i + 1);
+            }
+            columns[i] = column(label, kind(rsmd, i + 1), this.capacity);
+            positions.putIfAbsent(label.toLowerCase(Locale.ENGLISH), i + 1);
+        }
+    }
+
+    /**
+     * Appends the current row of a <code>ResultSet</code>.
+     *
+     * @param rs The result set, positioned on a valid row.
+     * @throws SQLException if a database access error occurs
+     */
+    void add(ResultSet rs) throws SQLException {
+        if (size == capacity) {
+            if (capacity == MAX_CAPACITY) {
+                throw new SQLException("Result exceeds " + MAX_CAPACITY + " rows");
+            }
+            capacity = capacity > MAX_CAPACITY / 2 ? MAX_CAPACITY : capacity * 2;
+            for (Column column : columns) {
+                column.grow(capacity);
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, size);
+        }
+        size++;
+    }
+
+    /**
+     * Releases the state only needed while rows are added.
+     */
+    void complete() {
+        for (Column column : columns) {
+            column.complete();
+        }
+    }
+
+    /**
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The row indexes, in <code>ResultSet</code> order.
+     */
+    public IntStream rows() {
+        return IntStream.range(0, size);
+    }
+
+    /**
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the position of a column.
+     *
+     * @param label The column label, ignoring case.
+     * @return The position of the first column with that label, starting at 1.
+     * @throws IllegalArgumentException if there is no such column.
+     */
+    public int findColumn(String label) {
+        Integer position = positions.get(label.toLowerCase(Locale.ENGLISH));
+        if (position == null) {
+            throw new IllegalArgumentException("No column " + label);
+        }
+        return position;
+    }
+
+    /**
+     * @param column The column position, starting at 1.
+     * @return The column label.
+     */
+    public String getColumnLabel(int column) {
+        return column(column).label;
+    }
+
+    /**
+     * @param column The column position, starting at 1.
+     * @return How the values of the column are stored.
+     */
+    public Kind getKind(int column) {
+        return column(column).kind;
+    }
+
+    /**
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return Whether the value is SQL NULL.
+     */
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return column(column).isNull(row);
+    }
+
+    /**
+     * Returns the value of an {@link Kind#INT} column.
+     *
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return The value, 0 for SQL NULL.
+     * @throws IllegalStateException if the column is not an <code>INT</code> column.
+     */
+    public int getInt(int row, int column) {
+        checkRow(row);
+        return column(column).getInt(row);
+    }
+
+    /**
+     * Returns the value of an {@link Kind#INT} or {@link Kind#LONG} column.
+     *
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return The value, 0 for SQL NULL.
+     * @throws IllegalStateException if the column is not an integral column.
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return column(column).getLong(row);
+    }
+
+    /**
+     * Returns the value of an {@link Kind#INT}, {@link Kind#LONG} or {@link Kind#DOUBLE} column.
+     *
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return The value, 0 for SQL NULL.
+     * @throws IllegalStateException if the column is not a numeric column.
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return column(column).getDouble(row);
+    }
+
+    /**
+     * Returns a value as a <code>String</code>.
+     *
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return The value of a {@link Kind#STRING} column, the string form of other values, <code>null</code> for
+     * SQL NULL.
+     */
+    public String getString(int row, int column) {
+        checkRow(row);
+        Column c = column(column);
+        if (c.isNull(row)) {
+            return null;
+        }
+        return c instanceof StringColumn ? ((StringColumn) c).get(row) : String.valueOf(c.getObject(row));
+    }
+
+    /**
+     * Returns a value as an object, boxing primitive values.
+     *
+     * @param row    The row index, starting at 0.
+     * @param column The column position, starting at 1.
+     * @return The value, <code>null</code> for SQL NULL.
+     */
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        Column c = column(column);
+        return c.isNull(row) ? null : c.getObject(row);
+    }
+
+    /**
+     * Returns the number of distinct values of a {@link Kind#STRING} column.
+     *
+     * @param column The column position, starting at 1.
+     * @return The dictionary size.
+     * @throws IllegalStateException if the column is not a <code>STRING</code> column.
+     */
+    public int getDictionarySize(int column) {
+        Column c = column(column);
+        if (!(c instanceof StringColumn)) {
+            throw new IllegalStateException("Column " + c.label + " is not a STRING column");
+        }
+        return ((StringColumn) c).dictionary.size();
+    }
+
+    private Column column(int column) {
+        if (column < 1 || column > columns.length) {
+            throw new IndexOutOfBoundsException("Column " + column + " out of 1.." + columns.length);
+        }
+        return columns[column - 1];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of 0.." + (size - 1));
+        }
+    }
+
+    private static Kind kind(ResultSetMetaData rsmd, int column) throws SQLException {
+        switch (rsmd.getColumnType(column)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Kind.INT;
+            case Types.BIGINT:
+                return Kind.LONG;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = rsmd.getPrecision(column);
+                return rsmd.getScale(column) == 0 && precision > 0 && precision <= 18 ? Kind.LONG : Kind.OBJECT;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Kind.DOUBLE;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return Kind.STRING;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    private static Column column(String label, Kind kind, int capacity) {
+        switch (kind) {
+            case INT:
+                return new IntColumn(label, capacity);
+            case LONG:
+                return new LongColumn(label, capacity);
+            case DOUBLE:
+                return new DoubleColumn(label, capacity);
+            case STRING:
+                return new StringColumn(label, capacity);
+            default:
+                return new ObjectColumn(label, capacity);
+        }
+    }
+
+    /**
+     * The values of one column and its null bitmap.
+     */
+    private abstract static class Column {
+        final String label;
+        final Kind kind;
+        private long[] nulls;
+
+        Column(String label, Kind kind, int capacity) {
+            this.label = label;
+            this.kind = kind;
+            this.nulls = new long[words(capacity)];
+        }
+
+        abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+        void grow(int capacity) {
+            nulls = Arrays.copyOf(nulls, words(capacity));
+        }
+
+        void complete() {
+        }
+
+        void setNull(int row) {
+            nulls[row >>> 6] |= 1L << row;
+        }
+
+        boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        int getInt(int row) {
+            throw new IllegalStateException("Column " + label + " is not an INT column");
+        }
+
+        long getLong(int row) {
+            throw new IllegalStateException("Column " + label + " is not an integral column");
+        }
+
+        double getDouble(int row) {
+            throw new IllegalStateException("Column " + label + " is not a numeric column");
+        }
+
+        abstract Object getObject(int row);
+
+        private static int words(int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private int[] values;
+
+        IntColumn(String label, int capacity) {
+            super(label, Kind.INT, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getInt(index);
+            if (rs.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        int getInt(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(String label, int capacity) {
+            super(label, Kind.LONG, capacity);
+            this.values = new long[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getLong(index);
+            if (rs.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values;
+
+        DoubleColumn(String label, int capacity) {
+            super(label, Kind.DOUBLE, capacity);
+            this.values = new double[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getDouble(index);
+            if (rs.wasNull()) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Strings stored as codes into the distinct values of the column.
+     */
+    private static final class StringColumn extends Column {
+        private final List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> codes = new HashMap<>();
+        private int[] values;
+
+        StringColumn(String label, int capacity) {
+            super(label, Kind.STRING, capacity);
+            this.values = new int[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            String value = rs.getString(index);
+            if (value == null) {
+                setNull(row);
+                return;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            values[row] = code;
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void complete() {
+            codes = null;
+        }
+
+        String get(int row) {
+            return dictionary.get(values[row]);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return get(row);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private Object[] values;
+
+        ObjectColumn(String label, int capacity) {
+            super(label, Kind.OBJECT, capacity);
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getObject(index);
+            if (values[row] == null) {
+                setNull(row);
+            }
+        }
+
+        @Override
+        void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package idealist.dao.metrics;
+
+import idealist.dao.StatementEvent;
+import idealist.dao.StatementListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link StatementListener} logging statements slower than a threshold at WARN level, and a random sample of
+ * the faster ones at DEBUG level, through SLF4J.
+ * <p>
+ * A line holds the total time and its breakdown into acquire, prepare, execute, map and close phases in
+ * microseconds, the row count, the handler class, the SQL and the parameters.  Parameters are only rendered when
+ * the logger emits the line, each value truncated to <code>maxParameterLength</code> characters, arrays shown by type and length, and at most
+ * {@link #MAX_PARAMETERS} of them, so large values and long lists stay cheap.  Statements below the threshold
+ * cost one comparison when sampling is off.
+ * <pre>
+ * JdbcAccessor accessor = new JdbcAccessor(dataSource, new StatementConfiguration.Builder()
+ *         .statementListener(new SlowQueryLog(200, TimeUnit.MILLISECONDS, 0.001, 100))
+ *         .build());
+ * </pre>
+ * This class is thread safe.
+ */
+public class SlowQueryLog implements StatementListener {
+
+    /**
+     * The maximum number of parameters rendered in one line.
+     */
+    public static final int MAX_PARAMETERS = 32;
+
+    private static final String FORMAT = "{} statement: {}us (acquire={}us prepare={}us execute={}us map={}us "
+            + "close={}us) rows={} handler={} sql=[{}] parameters={}";
+
+    private final Logger logger;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final int maxParameterLength;
+
+    /**
+     * Constructor for SlowQueryLog logging only slow statements, with parameter values truncated to 100
+     * characters.
+     *
+     * @param threshold The time from which a statement is slow.
+     * @param unit      The unit of <code>threshold</code>.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit) {
+        this(threshold, unit, 0, 100);
+    }
+
+    /**
+     * Constructor for SlowQueryLog logging to the logger of this class.
+     *
+     * @param threshold          The time from which a statement is slow.
+     * @param unit               The unit of <code>threshold</code>.
+     * @param sampleRate         The share of faster statements logged, between 0 and 1.
+     * @param maxParameterLength The maximum number of characters rendered per parameter value.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit, double sampleRate, int maxParameterLength) {
+        this(LoggerFactory.getLogger(SlowQueryLog.class), threshold, unit, sampleRate, maxParameterLength);
+    }
+
+    /**
+     * Constructor for SlowQueryLog.
+     *
+     * @param logger             The logger.
+     * @param threshold          The time from which a statement is slow.
+     * @param unit               The unit of <code>threshold</code>.
+     * @param sampleRate         The share of faster statements logged, between 0 and 1.
+     * @param maxParameterLength The maximum number of characters rendered per parameter value.
+     */
+    public SlowQueryLog(Logger logger, long threshold, TimeUnit unit, double sampleRate, int maxParameterLength) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative: " + threshold);
+        }
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+        }
+        if (maxParameterLength <= 0) {
+            throw new IllegalArgumentException("maxParameterLength must be positive: " + maxParameterLength);
+        }
+        this.logger = logger;
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.sampleRate = sampleRate;
+        this.maxParameterLength = maxParameterLength;
+    }
+
+    @Override
+    public void statementCompleted(StatementEvent event) {
+        if (event.getTotalNanos() >= thresholdNanos) {
+            if (logger.isWarnEnabled()) {
+                logger.warn(FORMAT, arguments(event, "Slow"));
+            }
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate
+                && logger.isDebugEnabled()) {
+            logger.debug(FORMAT, arguments(event, "Sampled"));
+        }
+    }
+
+    private Object[] arguments(StatementEvent event, String reason) {
+        Class<?> handler = event.getHandlerClass();
+        return new Object[]{
+                event.isFailed() ? reason + " failed" : reason,
+                micros(event.getTotalNanos()),
+                micros(event.getAcquireNanos()),
+                micros(event.getPrepareNanos()),
+                micros(event.getExecuteNanos()),
+                micros(event.getFetchNanos()),
+                micros(event.getCloseNanos()),
+                event.getRows(),
+                handler == null ? "-" : handler.getName(),
+                event.getSql(),
+                event.getKind() == StatementEvent.Kind.BATCH || event.getKind() == StatementEvent.Kind.INSERT_BATCH
+                        ? "[batch]" : new Parameters(event.getParameters(), maxParameterLength)
+        };
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Renders parameters when the logger formats the line.
+     */
+    private static final class Parameters {
+        private final Object[] values;
+        private final int maxLength;
+
+        Parameters(Object[] values, int maxLength) {
+            this.values = values;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public String toString() {
+            if (values == null) {
+                return "[]";
+            }
+            StringBuilder out = new StringBuilder("[");
+            int rendered = Math.min(values.length, MAX_PARAMETERS);
+            for (int i = 0; i < rendered; i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                append(out, values[i]);
+            }
+            if (values.length > rendered) {
+                out.append(", ... ").append(values.length - rendered).append(" more");
+            }
+            return out.append(']').toString();
+        }
+
+        private void append(StringBuilder out, Object value) {
+            if (value == null) {
+                out.append("null");
+                return;
+            }
+            if (value.getClass().isArray()) {
+                String type = value.getClass().getComponentType().getSimpleName();
+                out.append(type).append('[').append(Array.getLength(value)).append(']');
+                return;
+            }
+            String text = String.valueOf(value);
+            boolean quoted = value instanceof CharSequence;
+            if (quoted) {
+                out.append('\'');
+            }
+            if (text.length() > maxLength) {
+                out.append(text, 0, maxLength).append("...(").append(text.length()).append(" chars)");
+            } else {
+                out.append(text);
+            }
+            if (quoted) {
+                out.append('\'');
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package idealist.dao.metrics;
+
+import idealist.dao.StatementEvent;
+import idealist.dao.StatementListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link StatementListener} keeping latency histograms of each phase, row counts and error counts per
+ * normalized SQL text, to find the statements that cost the most under real load.
+ * <pre>
+ * SqlMetrics metrics = new SqlMetrics();
+ * JdbcAccessor accessor = new JdbcAccessor(dataSource,
+ *         new StatementConfiguration.Builder().statementListener(metrics).build());
+ * ...
+ * metrics.getWorst(10).forEach(System.out::println);
+ * </pre>
+ * <p>
+ * SQL is normalized by {@link #normalize(String)}, once per distinct SQL text, so statements differing only in
+ * literals share their metrics.  At most <code>maxStatements</code> normalized texts are tracked, further ones
+ * are recorded under {@link #OTHER}.  Recording a statement costs a map lookup and a few striped
+ * <code>LongAdder</code> increments.  This class is thread safe.
+ */
+public class SqlMetrics implements StatementListener {
+
+    /**
+     * The SQL of the statements recorded once <code>maxStatements</code> normalized texts are tracked.
+     */
+    public static final String OTHER = "<other>";
+
+    private static final int DEFAULT_MAX_STATEMENTS = 1024;
+
+    private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private final int maxStatements;
+    private final Map<String, SqlRecorder> bySql = new ConcurrentHashMap<>();
+    private final Map<String, SqlRecorder> byNormalizedSql = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for SqlMetrics tracking up to 1024 normalized SQL texts.
+     */
+    public SqlMetrics() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * Constructor for SqlMetrics.
+     *
+     * @param maxStatements The maximum number of normalized SQL texts tracked.
+     */
+    public SqlMetrics(int maxStatements) {
+        if (maxStatements <= 0) {
+            throw new IllegalArgumentException("maxStatements must be positive: " + maxStatements);
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void statementCompleted(StatementEvent event) {
+        recorder(event.getSql()).record(event);
+    }
+
+    /**
+     * @return The metrics of every tracked SQL text, the most expensive in total first.
+     */
+    public List<SqlSnapshot> snapshot() {
+        List<SqlSnapshot> snapshots = new ArrayList<>(byNormalizedSql.size());
+        for (SqlRecorder recorder : byNormalizedSql.values()) {
+            snapshots.add(recorder.snapshot());
+        }
+        snapshots.sort(Comparator.comparingLong((SqlSnapshot s) -> s.getTotal().getTotalNanos()).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @param count The number of SQL texts.
+     * @return The metrics of the SQL texts that took the most time in total, the most expensive first.
+     */
+    public List<SqlSnapshot> getWorst(int count) {
+        List<SqlSnapshot> snapshots = snapshot();
+        return snapshots.size() <= count ? snapshots : new ArrayList<>(snapshots.subList(0, count));
+    }
+
+    /**
+     * Forgets all metrics.
+     */
+    public void reset() {
+        bySql.clear();
+        byNormalizedSql.clear();
+    }
+
+    private SqlRecorder recorder(String sql) {
+        SqlRecorder recorder = bySql.get(sql);
+        if (recorder != null) {
+            return recorder;
+        }
+        String normalized = normalize(sql);
+        recorder = byNormalizedSql.get(normalized);
+        if (recorder == null) {
+            String key = byNormalizedSql.size() < maxStatements ? normalized : OTHER;
+            recorder = byNormalizedSql.computeIfAbsent(key, SqlRecorder::new);
+        }
+        // SQL texts built with literals could grow this map without bound, those are normalized every time
+        if (bySql.size() < maxStatements * 4) {
+            bySql.putIfAbsent(sql, recorder);
+        }
+        return recorder;
+    }
+
+    /**
+     * Normalizes SQL so that statements differing only in literals, comments, white space or the length of
+     * parameter lists compare equal: comments are dropped, white space is collapsed, string and number literals
+     * are replaced by <code>?</code> and lists of placeholders by one placeholder.
+     *
+     * @param sql The SQL.
+     * @return The normalized SQL.
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            String token;
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                continue;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i + 1, '\'');
+                token = "?";
+            } else if (c == '"' || c == '`') {
+                i = skipQuoted(sql, i + 1, c);
+                token = sql.substring(start, i);
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                token = "?";
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                        || sql.charAt(i) == '$' || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                token = sql.substring(start, i);
+            } else {
+                i++;
+                token = String.valueOf(c);
+            }
+            if (out.length() > 0 && needsSpace(out.charAt(out.length() - 1), token.charAt(0))) {
+                out.append(' ');
+            }
+            out.append(token);
+        }
+        return LIST.matcher(out).replaceAll("(?)");
+    }
+
+    private static boolean needsSpace(char last, char next) {
+        return last != '(' && next != ',' && next != ')';
+    }
+
+    private static int skipQuoted(String sql, int from, char quote) {
+        int i = from;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+}
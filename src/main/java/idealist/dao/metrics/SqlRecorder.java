@@ -0,0 +1,45 @@
+package idealist.dao.metrics;
+
+import idealist.dao.StatementEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live metrics of one normalized SQL text.  This class is thread safe.
+ */
+final class SqlRecorder {
+
+    private final String sql;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram prepare = new LatencyHistogram();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram fetch = new LatencyHistogram();
+    private final LatencyHistogram close = new LatencyHistogram();
+    private final LatencyHistogram total = new LatencyHistogram();
+
+    SqlRecorder(String sql) {
+        this.sql = sql;
+    }
+
+    void record(StatementEvent event) {
+        executions.increment();
+        if (event.isFailed()) {
+            errors.increment();
+        }
+        rows.add(event.getRows());
+        acquire.record(event.getAcquireNanos());
+        prepare.record(event.getPrepareNanos());
+        execute.record(event.getExecuteNanos());
+        fetch.record(event.getFetchNanos());
+        close.record(event.getCloseNanos());
+        total.record(event.getTotalNanos());
+    }
+
+    SqlSnapshot snapshot() {
+        return new SqlSnapshot(sql, executions.sum(), errors.sum(), rows.sum(), acquire.snapshot(),
+                prepare.snapshot(), execute.snapshot(), fetch.snapshot(), close.snapshot(), total.snapshot());
+    }
+}
@@ -0,0 +1,110 @@
+package idealist.dao.metrics;
+
+/**
+ * The metrics of one normalized SQL text at one point in time, taken by {@link SqlMetrics#snapshot()}.
+ */
+public final class SqlSnapshot {
+
+    private final String sql;
+    private final long executions;
+    private final long errors;
+    private final long rows;
+    private final LatencyHistogram.Snapshot acquire;
+    private final LatencyHistogram.Snapshot prepare;
+    private final LatencyHistogram.Snapshot execute;
+    private final LatencyHistogram.Snapshot fetch;
+    private final LatencyHistogram.Snapshot close;
+    private final LatencyHistogram.Snapshot total;
+
+    SqlSnapshot(String sql, long executions, long errors, long rows, LatencyHistogram.Snapshot acquire,
+                LatencyHistogram.Snapshot prepare, LatencyHistogram.Snapshot execute, LatencyHistogram.Snapshot fetch,
+                LatencyHistogram.Snapshot close, LatencyHistogram.Snapshot total) {
+        this.sql = sql;
+        this.executions = executions;
+        this.errors = errors;
+        this.rows = rows;
+        this.acquire = acquire;
+        this.prepare = prepare;
+        this.execute = execute;
+        this.fetch = fetch;
+        this.close = close;
+        this.total = total;
+    }
+
+    /**
+     * @return The normalized SQL, or {@link SqlMetrics#OTHER} for the statements beyond the tracked maximum.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The number of executions.
+     */
+    public long getExecutions() {
+        return executions;
+    }
+
+    /**
+     * @return The number of failed executions.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return The number of rows of all executions, as counted by
+     * {@link idealist.dao.StatementEvent#getRows()}.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The time spent acquiring connections.
+     */
+    public LatencyHistogram.Snapshot getAcquire() {
+        return acquire;
+    }
+
+    /**
+     * @return The time spent preparing statements and binding their parameters.
+     */
+    public LatencyHistogram.Snapshot getPrepare() {
+        return prepare;
+    }
+
+    /**
+     * @return The time spent executing statements.
+     */
+    public LatencyHistogram.Snapshot getExecute() {
+        return execute;
+    }
+
+    /**
+     * @return The time spent fetching and mapping results.
+     */
+    public LatencyHistogram.Snapshot getFetch() {
+        return fetch;
+    }
+
+    /**
+     * @return The time spent closing result sets, statements and connections.
+     */
+    public LatencyHistogram.Snapshot getClose() {
+        return close;
+    }
+
+    /**
+     * @return The time of whole executions.
+     */
+    public LatencyHistogram.Snapshot getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return sql + " [executions=" + executions + ", errors=" + errors + ", rows=" + rows + ", total={" + total
+                + "}]";
+    }
+}
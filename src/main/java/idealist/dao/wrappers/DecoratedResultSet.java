@@ -0,0 +1,540 @@
+package idealist.dao.wrappers;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * A <code>ResultSet</code> applying the decorations of {@link SqlNullCheckedResultSet} and
+ * {@link StringTrimmedResultSet} in a single delegate.
+ * <p>
+ * Strings returned by the <code>getString()</code> and <code>getObject()</code> methods are trimmed if
+ * <code>trimStrings</code> is set.  A SQL NULL read by a <code>getXXX</code> method is replaced by the matching
+ * <code>getNullXXX</code> value of a {@link SqlNullCheckedResultSet} if one is given; its values are read on every
+ * NULL, so setting them after wrapping takes effect.  <code>wasNull()</code> is only consulted when a column read
+ * returns <code>null</code>, zero or <code>false</code>.
+ * <p>
+ * {@link #decorate(ResultSet, SqlNullCheckedResultSet, boolean)} merges decorations of an instance of this class
+ * into a new one around the same result set instead of stacking them:
+ *
+ * <pre>
+ * SqlNullCheckedResultSet nulls = new SqlNullCheckedResultSet(rs);
+ * nulls.setNullString("---N/A---");
+ * rs = StringTrimmedResultSet.wrap(nulls.createResultSet());
+ * </pre>
+ * <p>
+ * This class is NOT thread-safe.
+ */
+public class DecoratedResultSet extends DelegatingResultSet {
+
+    /**
+     * The values replacing SQL NULL, or null to return values as read.
+     */
+    private final SqlNullCheckedResultSet nulls;
+    private final boolean trimStrings;
+
+    /**
+     * Constructor for DecoratedResultSet.
+     *
+     * @param rs          The result set to decorate.
+     * @param nulls       The values replacing SQL NULL, or null to return values as read.
+     * @param trimStrings True to trim strings returned by <code>getString()</code> and <code>getObject()</code>.
+     */
+    public DecoratedResultSet(ResultSet rs, SqlNullCheckedResultSet nulls, boolean trimStrings) {
+        super(rs);
+        this.nulls = nulls;
+        this.trimStrings = trimStrings;
+    }
+
+    /**
+     * Decorates a result set.  If the result set is itself an instance of this class, the result wraps the same
+     * underlying result set with both decorations: strings are trimmed if either trims them, and the given
+     * null values replace those of the instance.
+     *
+     * @param rs          The result set to decorate.
+     * @param nulls       The values replacing SQL NULL, or null to keep those of <code>rs</code>.
+     * @param trimStrings True to trim strings returned by <code>getString()</code> and <code>getObject()</code>.
+     * @return The decorated result set.
+     */
+    public static ResultSet decorate(ResultSet rs, SqlNullCheckedResultSet nulls, boolean trimStrings) {
+        if (rs != null && rs.getClass() == DecoratedResultSet.class) {
+            DecoratedResultSet decorated = (DecoratedResultSet) rs;
+            return new DecoratedResultSet(decorated.getDelegate(), nulls != null ? nulls : decorated.nulls,
+                    trimStrings || decorated.trimStrings);
+        }
+        return new DecoratedResultSet(rs, nulls, trimStrings);
+    }
+
+    /**
+     * @return The values replacing SQL NULL, or null if values are returned as read.
+     */
+    public SqlNullCheckedResultSet getNullValues() {
+        return nulls;
+    }
+
+    /**
+     * @return True if strings returned by <code>getString()</code> and <code>getObject()</code> are trimmed.
+     */
+    public boolean isTrimStrings() {
+        return trimStrings;
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        String value = super.getString(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullString() : null;
+        }
+        return trimStrings ? value.trim() : value;
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        boolean value = super.getBoolean(columnIndex);
+        return !value && nulls != null && super.wasNull() ? nulls.getNullBoolean() : value;
+    }
+
+    @Override
+    public byte getByte(int columnIndex) throws SQLException {
+        byte value = super.getByte(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullByte() : value;
+    }
+
+    @Override
+    public short getShort(int columnIndex) throws SQLException {
+        short value = super.getShort(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullShort() : value;
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        int value = super.getInt(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullInt() : value;
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        long value = super.getLong(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullLong() : value;
+    }
+
+    @Override
+    public float getFloat(int columnIndex) throws SQLException {
+        float value = super.getFloat(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullFloat() : value;
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        double value = super.getDouble(columnIndex);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullDouble() : value;
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+        BigDecimal value = super.getBigDecimal(columnIndex, scale);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBigDecimal() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] getBytes(int columnIndex) throws SQLException {
+        byte[] value = super.getBytes(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBytes() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Date getDate(int columnIndex) throws SQLException {
+        java.sql.Date value = super.getDate(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullDate() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Time getTime(int columnIndex) throws SQLException {
+        java.sql.Time value = super.getTime(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTime() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Timestamp getTimestamp(int columnIndex) throws SQLException {
+        java.sql.Timestamp value = super.getTimestamp(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTimestamp() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public InputStream getAsciiStream(int columnIndex) throws SQLException {
+        InputStream value = super.getAsciiStream(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullAsciiStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public InputStream getBinaryStream(int columnIndex) throws SQLException {
+        InputStream value = super.getBinaryStream(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBinaryStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public String getString(String columnLabel) throws SQLException {
+        String value = super.getString(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullString() : null;
+        }
+        return trimStrings ? value.trim() : value;
+    }
+
+    @Override
+    public boolean getBoolean(String columnLabel) throws SQLException {
+        boolean value = super.getBoolean(columnLabel);
+        return !value && nulls != null && super.wasNull() ? nulls.getNullBoolean() : value;
+    }
+
+    @Override
+    public byte getByte(String columnLabel) throws SQLException {
+        byte value = super.getByte(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullByte() : value;
+    }
+
+    @Override
+    public short getShort(String columnLabel) throws SQLException {
+        short value = super.getShort(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullShort() : value;
+    }
+
+    @Override
+    public int getInt(String columnLabel) throws SQLException {
+        int value = super.getInt(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullInt() : value;
+    }
+
+    @Override
+    public long getLong(String columnLabel) throws SQLException {
+        long value = super.getLong(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullLong() : value;
+    }
+
+    @Override
+    public float getFloat(String columnLabel) throws SQLException {
+        float value = super.getFloat(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullFloat() : value;
+    }
+
+    @Override
+    public double getDouble(String columnLabel) throws SQLException {
+        double value = super.getDouble(columnLabel);
+        return value == 0 && nulls != null && super.wasNull() ? nulls.getNullDouble() : value;
+    }
+
+    @Deprecated
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+        BigDecimal value = super.getBigDecimal(columnLabel, scale);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBigDecimal() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public byte[] getBytes(String columnLabel) throws SQLException {
+        byte[] value = super.getBytes(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBytes() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Date getDate(String columnLabel) throws SQLException {
+        java.sql.Date value = super.getDate(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullDate() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Time getTime(String columnLabel) throws SQLException {
+        java.sql.Time value = super.getTime(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTime() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Timestamp getTimestamp(String columnLabel) throws SQLException {
+        java.sql.Timestamp value = super.getTimestamp(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTimestamp() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public InputStream getAsciiStream(String columnLabel) throws SQLException {
+        InputStream value = super.getAsciiStream(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullAsciiStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public InputStream getBinaryStream(String columnLabel) throws SQLException {
+        InputStream value = super.getBinaryStream(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBinaryStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        Object value = super.getObject(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? ((String) value).trim() : value;
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        Object value = super.getObject(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? ((String) value).trim() : value;
+    }
+
+    @Override
+    public Reader getCharacterStream(int columnIndex) throws SQLException {
+        Reader value = super.getCharacterStream(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullCharacterStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Reader getCharacterStream(String columnLabel) throws SQLException {
+        Reader value = super.getCharacterStream(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullCharacterStream() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        BigDecimal value = super.getBigDecimal(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBigDecimal() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+        BigDecimal value = super.getBigDecimal(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBigDecimal() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+        Object value = super.getObject(columnIndex, map);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? ((String) value).trim() : value;
+    }
+
+    @Override
+    public Ref getRef(int columnIndex) throws SQLException {
+        Ref value = super.getRef(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullRef() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Blob getBlob(int columnIndex) throws SQLException {
+        Blob value = super.getBlob(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBlob() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Clob getClob(int columnIndex) throws SQLException {
+        Clob value = super.getClob(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullClob() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+        Object value = super.getObject(columnLabel, map);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? ((String) value).trim() : value;
+    }
+
+    @Override
+    public Ref getRef(String columnLabel) throws SQLException {
+        Ref value = super.getRef(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullRef() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Blob getBlob(String columnLabel) throws SQLException {
+        Blob value = super.getBlob(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullBlob() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public Clob getClob(String columnLabel) throws SQLException {
+        Clob value = super.getClob(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullClob() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Date getDate(int columnIndex, Calendar cal) throws SQLException {
+        java.sql.Date value = super.getDate(columnIndex, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullDate() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Date getDate(String columnLabel, Calendar cal) throws SQLException {
+        java.sql.Date value = super.getDate(columnLabel, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullDate() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Time getTime(int columnIndex, Calendar cal) throws SQLException {
+        java.sql.Time value = super.getTime(columnIndex, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTime() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Time getTime(String columnLabel, Calendar cal) throws SQLException {
+        java.sql.Time value = super.getTime(columnLabel, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTime() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+        java.sql.Timestamp value = super.getTimestamp(columnIndex, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTimestamp() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public java.sql.Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+        java.sql.Timestamp value = super.getTimestamp(columnLabel, cal);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullTimestamp() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public URL getURL(int columnIndex) throws SQLException {
+        URL value = super.getURL(columnIndex);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullURL() : null;
+        }
+        return value;
+    }
+
+    @Override
+    public URL getURL(String columnLabel) throws SQLException {
+        URL value = super.getURL(columnLabel);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? nulls.getNullURL() : null;
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        T value = super.getObject(columnIndex, type);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? (T) nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? (T) ((String) value).trim() : value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        T value = super.getObject(columnLabel, type);
+        if (value == null) {
+            return nulls != null && super.wasNull() ? (T) nulls.getNullObject() : null;
+        }
+        return trimStrings && value instanceof String ? (T) ((String) value).trim() : value;
+    }
+}
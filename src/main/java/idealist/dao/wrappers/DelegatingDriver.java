@@ -0,0 +1,77 @@
+package idealist.dao.wrappers;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * A <code>Driver</code> that forwards every call to another <code>Driver</code>.  Subclasses override the calls they
+ * decorate, which costs a plain virtual call per method instead of the reflective dispatch of a {@link
+ * java.lang.reflect.Proxy}.
+ *
+ * <p>
+ * This class is as thread safe as the underlying driver.
+ * </p>
+ */
+public class DelegatingDriver implements Driver {
+
+    private final Driver delegate;
+
+    /**
+     * Constructor for DelegatingDriver.
+     *
+     * @param delegate The driver the calls are forwarded to.
+     */
+    public DelegatingDriver(Driver delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return The driver the calls are forwarded to.
+     */
+    public Driver getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        return delegate.connect(url, info);
+    }
+
+    @Override
+    public boolean acceptsURL(String url) throws SQLException {
+        return delegate.acceptsURL(url);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) throws SQLException {
+        return delegate.getPropertyInfo(url, info);
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return delegate.getMajorVersion();
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return delegate.getMinorVersion();
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return delegate.jdbcCompliant();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+}
@@ -0,0 +1,166 @@
+package idealist.dao.wrappers;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * A <code>ResultSetMetaData</code> that forwards every call to another <code>ResultSetMetaData</code>.  Subclasses
+ * override the calls they decorate, which costs a plain virtual call per method instead of the reflective dispatch
+ * of a {@link java.lang.reflect.Proxy}.
+ *
+ * <p>
+ * This class is as thread safe as the underlying metadata.
+ * </p>
+ */
+public class DelegatingResultSetMetaData implements ResultSetMetaData {
+
+    private final ResultSetMetaData delegate;
+
+    /**
+     * Constructor for DelegatingResultSetMetaData.
+     *
+     * @param delegate The metadata the calls are forwarded to.
+     */
+    public DelegatingResultSetMetaData(ResultSetMetaData delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("delegate");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return The metadata the calls are forwarded to.
+     */
+    public ResultSetMetaData getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns the metadata a call is forwarded to.  Subclasses may override this to check their own state
+     * before every call.
+     *
+     * @return The metadata the calls are forwarded to.
+     * @throws SQLException if the call must not be forwarded
+     */
+    protected ResultSetMetaData delegate() throws SQLException {
+        return delegate;
+    }
+
+    @Override
+    public int getColumnCount() throws SQLException {
+        return delegate().getColumnCount();
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        return delegate().isAutoIncrement(column);
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return delegate().isCaseSensitive(column);
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        return delegate().isSearchable(column);
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        return delegate().isCurrency(column);
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        return delegate().isNullable(column);
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        return delegate().isSigned(column);
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        return delegate().getColumnDisplaySize(column);
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return delegate().getColumnLabel(column);
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return delegate().getColumnName(column);
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        return delegate().getSchemaName(column);
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        return delegate().getPrecision(column);
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        return delegate().getScale(column);
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        return delegate().getTableName(column);
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        return delegate().getCatalogName(column);
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return delegate().getColumnType(column);
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        return delegate().getColumnTypeName(column);
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        return delegate().isReadOnly(column);
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        return delegate().isWritable(column);
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        return delegate().isDefinitelyWritable(column);
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return delegate().getColumnClassName(column);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
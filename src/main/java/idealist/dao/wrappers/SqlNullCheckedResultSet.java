@@ -1,7 +1,5 @@
 package idealist.dao.wrappers;
 
-import idealist.dao.ProxyFactory;
-
 import java.io.InputStream;
 import java.io.Reader;
 import java.lang.reflect.InvocationHandler;
@@ -32,7 +30,7 @@ import java.util.Map;
  * SqlNullCheckedResultSet wrapper = new SqlNullCheckedResultSet(rs);
  * wrapper.setNullString("---N/A---"); // Set null string
  * wrapper.setNullInt(-999); // Set null integer
- * rs = ProxyFactory.instance().createResultSet(wrapper);
+ * rs = wrapper.createResultSet();
  *
  * while (rs.next()) {
  *     // If col1 is SQL NULL, value returned will be "---N/A---"
@@ -62,10 +60,6 @@ public class SqlNullCheckedResultSet implements InvocationHandler {
      * @since 1.4
      */
     private static final String GET_NULL_PREFIX = "getNull";
-    /**
-     * The factory to create proxies with.
-     */
-    private static final ProxyFactory factory = ProxyFactory.instance();
 
     static {
         Method[] methods = SqlNullCheckedResultSet.class.getMethods();
@@ -118,17 +112,35 @@ public class SqlNullCheckedResultSet implements InvocationHandler {
     }
 
     /**
-     * Wraps the <code>ResultSet</code> in an instance of this class.  This is
-     * equivalent to:
+     * Wraps the <code>ResultSet</code> in a {@link DecoratedResultSet} checking
+     * for SQL NULL with the default null values.  This behaves like
      * <pre>
      * ProxyFactory.instance().createResultSet(new SqlNullCheckedResultSet(rs));
      * </pre>
+     * without a reflective call per method.
      *
      * @param rs The <code>ResultSet</code> to wrap.
      * @return wrapped ResultSet
      */
     public static ResultSet wrap(ResultSet rs) {
-        return factory.createResultSet(new SqlNullCheckedResultSet(rs));
+        return new SqlNullCheckedResultSet(rs).createResultSet();
+    }
+
+    /**
+     * Creates a {@link DecoratedResultSet} replacing SQL NULL in the wrapped
+     * <code>ResultSet</code> with the null values of this instance, as they
+     * are when each value is read.  A <code>ResultSet</code> already wrapped by
+     * {@link StringTrimmedResultSet#wrap(ResultSet)} is merged into a single
+     * decorator.  This behaves like
+     * <pre>
+     * ProxyFactory.instance().createResultSet(this);
+     * </pre>
+     * without a reflective call per method.
+     *
+     * @return wrapped ResultSet
+     */
+    public ResultSet createResultSet() {
+        return DecoratedResultSet.decorate(this.rs, this, false);
     }
 
     /**
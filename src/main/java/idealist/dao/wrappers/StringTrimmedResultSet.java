@@ -1,7 +1,5 @@
 package idealist.dao.wrappers;
 
-import idealist.dao.ProxyFactory;
-
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.sql.ResultSet;
@@ -31,10 +29,6 @@ import java.sql.ResultSet;
  */
 public class StringTrimmedResultSet implements InvocationHandler {
 
-    /**
-     * The factory to create proxies with.
-     */
-    private static final ProxyFactory factory = ProxyFactory.instance();
     /**
      * The wrapped result.
      */
@@ -52,17 +46,20 @@ public class StringTrimmedResultSet implements InvocationHandler {
     }
 
     /**
-     * Wraps the <code>ResultSet</code> in an instance of this class.  This is
-     * equivalent to:
+     * Wraps the <code>ResultSet</code> in a {@link DecoratedResultSet} trimming
+     * strings.  This behaves like
      * <pre>
      * ProxyFactory.instance().createResultSet(new StringTrimmedResultSet(rs));
      * </pre>
+     * without a reflective call per method.  A <code>ResultSet</code> already
+     * wrapped by {@link SqlNullCheckedResultSet#wrap(ResultSet)} is merged into
+     * a single decorator.
      *
      * @param rs The <code>ResultSet</code> to wrap.
      * @return wrapped ResultSet
      */
     public static ResultSet wrap(ResultSet rs) {
-        return factory.createResultSet(new StringTrimmedResultSet(rs));
+        return DecoratedResultSet.decorate(rs, null, true);
     }
 
     /**
@@ -0,0 +1,97 @@
+package idealist.dao;
+
+import idealist.dao.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link AsyncJdbcAccessor} against an in-memory H2 database.
+ */
+public class AsyncJdbcAccessorTest {
+
+    private static final String URL = "jdbc:h2:mem:async;DB_CLOSE_DELAY=-1";
+
+    private PooledDataSource pool;
+    private JdbcAccessor accessor;
+
+    @Before
+    public void setUp() {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(2).build();
+        accessor = new JdbcAccessor(pool);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void closeShutsDownOwnExecutor() throws Exception {
+        AsyncJdbcAccessor async = new AsyncJdbcAccessor(accessor, 2);
+        assertEquals(Integer.valueOf(1),
+                async.selectAsync("SELECT 1", new ScalarHandler<Integer>()).get(5, TimeUnit.SECONDS));
+        async.close();
+        try {
+            async.selectAsync("SELECT 1", new ScalarHandler<Integer>()).get(5, TimeUnit.SECONDS);
+            fail("ran a query after close");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, async.getInFlight());
+    }
+
+    @Test
+    public void closeLeavesCallerExecutorRunning() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AsyncJdbcAccessor async = new AsyncJdbcAccessor(executor, accessor, 2);
+            async.close();
+            assertFalse(executor.isShutdown());
+            assertEquals(Integer.valueOf(1),
+                    async.selectAsync("SELECT 1", new ScalarHandler<Integer>()).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rejectsCallsBeyondLimit() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AsyncJdbcAccessor async = new AsyncJdbcAccessor(executor, accessor, 1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Object> first = async.supplyAsync(jdbc -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+            try {
+                async.selectAsync("SELECT 1", new ScalarHandler<Integer>()).get(5, TimeUnit.SECONDS);
+                fail("ran beyond maxInFlight");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+            }
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertEquals(0, async.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package idealist.dao;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests the primitive property path of {@link BeanProcessor} against an in-memory H2 database, comparing it with
+ * the boxed path a subclass overriding {@link BeanProcessor#processColumn(ResultSet, int, Class)} takes.
+ */
+public class BeanProcessorTest {
+
+    private static final String COLUMNS = "SELECT i, l, d, f, s, b, z, boxed FROM primitives";
+    private static final int ROWS = 10_000;
+
+    private static Connection conn;
+
+    /**
+     * A bean whose primitive properties start out away from their defaults, so that setting a default shows.
+     */
+    public static class Primitives {
+        private int i = -1;
+        private long l = -1;
+        private double d = -1;
+        private float f = -1;
+        private short s = -1;
+        private byte b = -1;
+        private boolean z = true;
+        private Long boxed = -1L;
+
+        public int getI() {
+            return i;
+        }
+
+        public void setI(int i) {
+            this.i = i;
+        }
+
+        public long getL() {
+            return l;
+        }
+
+        public void setL(long l) {
+            this.l = l;
+        }
+
+        public double getD() {
+            return d;
+        }
+
+        public void setD(double d) {
+            this.d = d;
+        }
+
+        public float getF() {
+            return f;
+        }
+
+        public void setF(float f) {
+            this.f = f;
+        }
+
+        public short getS() {
+            return s;
+        }
+
+        public void setS(short s) {
+            this.s = s;
+        }
+
+        public byte getB() {
+            return b;
+        }
+
+        public void setB(byte b) {
+            this.b = b;
+        }
+
+        public boolean isZ() {
+            return z;
+        }
+
+        public void setZ(boolean z) {
+            this.z = z;
+        }
+
+        public Long getBoxed() {
+            return boxed;
+        }
+
+        public void setBoxed(Long boxed) {
+            this.boxed = boxed;
+        }
+    }
+
+    /**
+     * Reads every column through the overridden hook, which disables the primitive path.
+     */
+    private static final class BoxedBeanProcessor extends BeanProcessor {
+        @Override
+        protected Object processColumn(ResultSet rs, int index, Class<?> propType) throws SQLException {
+            return super.processColumn(rs, index, propType);
+        }
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:beans", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE primitives (id INT PRIMARY KEY, i INT, l BIGINT, d DOUBLE, f REAL,"
+                    + " s SMALLINT, b TINYINT, z BOOLEAN, boxed BIGINT)");
+            stmt.execute("INSERT INTO primitives VALUES (1, 1000000, 9000000000, 1.5, 2.5, 300, 7, TRUE, 9000000001)");
+            stmt.execute("INSERT INTO primitives VALUES (2, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+            stmt.execute("INSERT INTO primitives VALUES (3, 0, 0, 0, 0, 0, 0, FALSE, 0)");
+            stmt.execute("CREATE TABLE many AS SELECT X AS id, X + 1000000 AS i, X + 9000000000 AS l,"
+                    + " X + 0.5 AS d, CAST(X + 0.5 AS REAL) AS f, CAST(MOD(X, 30000) AS SMALLINT) AS s,"
+                    + " CAST(MOD(X, 100) AS TINYINT) AS b, MOD(X, 2) = 0 AS z, X + 9000000000 AS boxed"
+                    + " FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws SQLException {
+        conn.close();
+    }
+
+    private static Primitives row(BeanProcessor processor, int id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(COLUMNS + " WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return processor.toBean(rs, Primitives.class);
+            }
+        }
+    }
+
+    private static void assertSameRow(Primitives expected, Primitives actual) {
+        assertEquals(expected.getI(), actual.getI());
+        assertEquals(expected.getL(), actual.getL());
+        assertEquals(expected.getD(), actual.getD(), 0);
+        assertEquals(expected.getF(), actual.getF(), 0);
+        assertEquals(expected.getS(), actual.getS());
+        assertEquals(expected.getB(), actual.getB());
+        assertEquals(expected.isZ(), actual.isZ());
+        assertEquals(expected.getBoxed(), actual.getBoxed());
+    }
+
+    @Test
+    public void setsPrimitiveValues() throws SQLException {
+        Primitives bean = row(new BeanProcessor(), 1);
+        assertEquals(1000000, bean.getI());
+        assertEquals(9000000000L, bean.getL());
+        assertEquals(1.5, bean.getD(), 0);
+        assertEquals(2.5f, bean.getF(), 0);
+        assertEquals(300, bean.getS());
+        assertEquals(7, bean.getB());
+        assertTrue(bean.isZ());
+        assertEquals(Long.valueOf(9000000001L), bean.getBoxed());
+        assertSameRow(row(new BoxedBeanProcessor(), 1), bean);
+    }
+
+    @Test
+    public void setsNullAsPrimitiveDefault() throws SQLException {
+        Primitives bean = row(new BeanProcessor(), 2);
+        assertEquals(0, bean.getI());
+        assertEquals(0L, bean.getL());
+        assertEquals(0, bean.getD(), 0);
+        assertEquals(0, bean.getF(), 0);
+        assertEquals(0, bean.getS());
+        assertEquals(0, bean.getB());
+        assertFalse(bean.isZ());
+        assertNull(bean.getBoxed());
+        assertSameRow(row(new BoxedBeanProcessor(), 2), bean);
+    }
+
+    @Test
+    public void tellsZeroFromNullOnlyForWrappers() throws SQLException {
+        Primitives bean = row(new BeanProcessor(), 3);
+        assertEquals(0L, bean.getL());
+        assertFalse(bean.isZ());
+        assertEquals(Long.valueOf(0), bean.getBoxed());
+        assertSameRow(row(new BoxedBeanProcessor(), 3), bean);
+    }
+
+    @Test
+    public void populatesExistingBean() throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(COLUMNS + " WHERE id = 2");
+             ResultSet rs = stmt.executeQuery()) {
+            assertTrue(rs.next());
+            Primitives bean = new BeanProcessor().populateBean(rs, new Primitives());
+            assertEquals(0L, bean.getL());
+            assertFalse(bean.isZ());
+            assertNull(bean.getBoxed());
+        }
+    }
+
+    private static long allocatedPerRow(BeanProcessor processor) throws SQLException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        try (PreparedStatement stmt = conn.prepareStatement(COLUMNS.replace("primitives", "many"))) {
+            // warm up the mapper and the JIT before measuring
+            for (int round = 0; round < 5; round++) {
+                try (ResultSet rs = stmt.executeQuery()) {
+                    processor.toBeanList(rs, Primitives.class);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                long before = threads.getThreadAllocatedBytes(thread);
+                List<Primitives> beans = processor.toBeanList(rs, Primitives.class);
+                long allocated = threads.getThreadAllocatedBytes(thread) - before;
+                assertEquals(ROWS, beans.size());
+                return allocated / ROWS;
+            }
+        }
+    }
+
+    @Test
+    public void primitivePathAllocatesLess() throws SQLException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled());
+
+        long primitive = allocatedPerRow(new BeanProcessor());
+        long boxed = allocatedPerRow(new BoxedBeanProcessor());
+        // the boxed path allocates at least a Long, an Integer and a Double per row beyond the bean itself
+        assertTrue("primitive " + primitive + " bytes/row, boxed " + boxed + " bytes/row",
+                primitive + 48 <= boxed);
+    }
+}
@@ -0,0 +1,315 @@
+package idealist.dao;
+
+import idealist.dao.wrappers.DelegatingConnection;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link PooledDataSource} against an in-memory H2 database.
+ */
+public class PooledDataSourceTest {
+
+    private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+    private PooledDataSource pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS t");
+            stmt.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private static Connection physical(Connection conn) {
+        return ((DelegatingConnection) conn).getDelegate();
+    }
+
+    @Test
+    public void reusesReturnedConnection() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(2).build();
+        Connection first;
+        try (Connection conn = pool.getConnection()) {
+            first = physical(conn);
+            assertEquals(1, pool.getActiveConnections());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertSame(first, physical(conn));
+        }
+        assertEquals(0, pool.getActiveConnections());
+        assertEquals(1, pool.getTotalConnections());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getAcquireCount());
+    }
+
+    @Test
+    public void closedHandleCannotReachConnection() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").build();
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        try {
+            conn.createStatement();
+            fail("statement created on a closed handle");
+        } catch (SQLException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void timesOutWhenExhausted() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1)
+                .connectionTimeout(100, TimeUnit.MILLISECONDS).build();
+        Connection held = pool.getConnection();
+        try {
+            long start = System.nanoTime();
+            try {
+                pool.getConnection();
+                fail("borrowed beyond maxSize");
+            } catch (SQLTransientConnectionException expected) {
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        } finally {
+            held.close();
+        }
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(0, pool.getThreadsAwaitingConnection());
+    }
+
+    @Test
+    public void handsReturnedConnectionToWaitingThread() throws Exception {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1)
+                .connectionTimeout(5, TimeUnit.SECONDS).build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Connection held = pool.getConnection();
+            Connection first = physical(held);
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Connection> waiter = executor.submit(() -> {
+                started.countDown();
+                try (Connection conn = pool.getConnection()) {
+                    return physical(conn);
+                }
+            });
+            started.await();
+            while (pool.getThreadsAwaitingConnection() == 0) {
+                Thread.sleep(1);
+            }
+            held.close();
+            assertSame(first, waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(1, pool.getCreatedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void manyThreadsShareFewConnections() throws Exception {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(2)
+                .connectionTimeout(10, TimeUnit.SECONDS).build();
+        int threads = 8;
+        int loops = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < loops; j++) {
+                        try (Connection conn = pool.getConnection();
+                             Statement stmt = conn.createStatement();
+                             ResultSet rs = stmt.executeQuery("SELECT 1")) {
+                            assertTrue(rs.next());
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * loops, pool.getAcquireCount());
+        assertEquals(0, pool.getTimeoutCount());
+        assertEquals(0, pool.getActiveConnections());
+        assertTrue(pool.getTotalConnections() <= 2);
+    }
+
+    @Test
+    public void evictsIdleConnections() throws Exception {
+        pool = PooledDataSource.builder(URL, "sa", "").idleTimeout(50, TimeUnit.MILLISECONDS)
+                .housekeepingPeriod(20, TimeUnit.MILLISECONDS).build();
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        first.close();
+        second.close();
+        assertEquals(2, pool.getIdleConnections());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getTotalConnections() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getTotalConnections());
+        assertEquals(2, pool.getClosedCount());
+    }
+
+    @Test
+    public void keepsMinimumIdle() throws Exception {
+        pool = PooledDataSource.builder(URL, "sa", "").minIdle(2).idleTimeout(10, TimeUnit.MILLISECONDS)
+                .housekeepingPeriod(20, TimeUnit.MILLISECONDS).build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getIdleConnections() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(2, pool.getIdleConnections());
+        assertEquals(2, pool.getTotalConnections());
+    }
+
+    @Test
+    public void replacesInvalidConnection() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").validationThreshold(0, TimeUnit.NANOSECONDS).build();
+        Connection first;
+        try (Connection conn = pool.getConnection()) {
+            first = physical(conn);
+            first.close();
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertNotSame(first, physical(conn));
+            assertFalse(conn.isClosed());
+        }
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(1, pool.getClosedCount());
+        assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    public void rollsBackOpenTransactionOnClose() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1).build();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.executeUpdate("INSERT INTO t VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void rollsBackWhenDefaultIsManualCommit() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL(URL);
+        h2.setUser("sa");
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    Object result = method.invoke(h2, args);
+                    if (result instanceof Connection) {
+                        ((Connection) result).setAutoCommit(false);
+                    }
+                    return result;
+                });
+        pool = PooledDataSource.builder(dataSource).maxSize(1).build();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            assertFalse(conn.getAutoCommit());
+            stmt.executeUpdate("INSERT INTO t VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertFalse(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void closedPoolRejectsBorrowers() throws SQLException {
+        pool = PooledDataSource.builder(URL, "sa", "").build();
+        Connection conn = pool.getConnection();
+        pool.close();
+        assertTrue(pool.isClosed());
+        conn.close();
+        assertEquals(0, pool.getTotalConnections());
+        try {
+            pool.getConnection();
+            fail("borrowed from a closed pool");
+        } catch (SQLException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void restoresSettingsOnClose() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE SCHEMA IF NOT EXISTS other");
+        }
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1).build();
+        boolean readOnly;
+        int isolation;
+        String schema;
+        int holdability;
+        int networkTimeout;
+        try (Connection conn = pool.getConnection()) {
+            readOnly = conn.isReadOnly();
+            isolation = conn.getTransactionIsolation();
+            schema = conn.getSchema();
+            holdability = conn.getHoldability();
+            networkTimeout = conn.getNetworkTimeout();
+
+            conn.setReadOnly(!readOnly);
+            conn.setTransactionIsolation(isolation == Connection.TRANSACTION_SERIALIZABLE
+                    ? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE);
+            conn.setSchema("OTHER");
+            conn.setHoldability(holdability == ResultSet.HOLD_CURSORS_OVER_COMMIT
+                    ? ResultSet.CLOSE_CURSORS_AT_COMMIT : ResultSet.HOLD_CURSORS_OVER_COMMIT);
+            conn.setNetworkTimeout(Runnable::run, networkTimeout + 1000);
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(readOnly, conn.isReadOnly());
+            assertEquals(isolation, conn.getTransactionIsolation());
+            assertEquals(schema, conn.getSchema());
+            assertEquals(holdability, conn.getHoldability());
+            assertEquals(networkTimeout, conn.getNetworkTimeout());
+        }
+        assertEquals(1, pool.getCreatedCount());
+    }
+}
@@ -0,0 +1,128 @@
+package idealist.dao;
+
+import idealist.dao.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests statement reuse of a {@link JdbcAccessor} with a {@link StatementCache} against an in-memory H2 database.
+ */
+public class StatementCacheTest {
+
+    private static final String URL = "jdbc:h2:mem:statements;DB_CLOSE_DELAY=-1";
+    private static final String SQL = "SELECT COUNT(*) FROM t WHERE id > ?";
+
+    private PooledDataSource pool;
+
+    @Before
+    public void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS t");
+            stmt.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+            stmt.execute("INSERT INTO t VALUES (1), (2), (3)");
+        }
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1).build();
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    private static StatementConfiguration cached() {
+        return new StatementConfiguration.Builder().statementCacheSize(16).build();
+    }
+
+    @Test
+    public void reusesStatementsAcrossPooledBorrows() {
+        JdbcAccessor accessor = new JdbcAccessor(pool, cached());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Long.valueOf(2), accessor.select(SQL, new ScalarHandler<Long>(), 1));
+        }
+        StatementCache cache = accessor.getStatementCache();
+        assertEquals(1, cache.getMissCount());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void preparesAgainOnNewPooledConnection() throws Exception {
+        pool.close();
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(1).idleTimeout(10, TimeUnit.MILLISECONDS)
+                .housekeepingPeriod(10, TimeUnit.MILLISECONDS).build();
+        JdbcAccessor accessor = new JdbcAccessor(pool, cached());
+        accessor.select(SQL, new ScalarHandler<Long>(), 1);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getClosedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, pool.getClosedCount());
+        assertEquals(0, accessor.getStatementCache().size());
+        assertEquals(Long.valueOf(1), accessor.select(SQL, new ScalarHandler<Long>(), 2));
+        assertEquals(2, accessor.getStatementCache().getMissCount());
+        assertEquals(0, accessor.getStatementCache().getHitCount());
+    }
+
+    @Test
+    public void closesStatementsOfUnpooledConnections() throws SQLException {
+        JdbcAccessor accessor = new JdbcAccessor(cached());
+        Connection conn = DriverManager.getConnection(URL, "sa", "");
+        try {
+            accessor.select(conn, SQL, new ScalarHandler<Long>(), 1);
+            accessor.select(conn, SQL, new ScalarHandler<Long>(), 1);
+            assertEquals(1, accessor.getStatementCache().getHitCount());
+            assertEquals(1, accessor.getStatementCache().size());
+        } finally {
+            accessor.getStatementCache().close(conn);
+            conn.close();
+        }
+        assertEquals(0, accessor.getStatementCache().size());
+    }
+
+    @Test
+    public void closesStatementsOfDelegatingConnections() throws SQLException {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        return ProxyFactory.instance().createDelegatingConnection(
+                                DriverManager.getConnection(URL, "sa", ""));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        JdbcAccessor accessor = new JdbcAccessor(dataSource, cached());
+        accessor.select(SQL, new ScalarHandler<Long>(), 1);
+        assertEquals(0, accessor.getStatementCache().size());
+    }
+
+    @Test
+    public void discardsRowsOfFailedBatch() throws SQLException {
+        JdbcAccessor accessor = new JdbcAccessor(cached());
+        String insert = "INSERT INTO t VALUES (?)";
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "")) {
+            try {
+                accessor.batch(conn, insert, new Object[][]{{10}, {11}, {12, 13}});
+                fail("bound a row with too many parameters");
+            } catch (SQLRuntimeException expected) {
+                // expected
+            }
+            assertArrayEquals(new int[]{1}, accessor.batch(conn, insert, new Object[][]{{20}}));
+            assertEquals(Long.valueOf(1), accessor.select(conn, SQL, new ScalarHandler<Long>(), 3));
+            accessor.getStatementCache().close(conn);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package idealist.dao;
+
+import idealist.dao.handlers.ColumnarHandler;
+import idealist.dao.handlers.MapHandler;
+import idealist.dao.handlers.MapListHandler;
+import idealist.dao.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the events a {@link JdbcAccessor} passes to its {@link StatementListener} against an in-memory H2
+ * database.
+ */
+public class StatementListenerTest {
+
+    private static final String URL = "jdbc:h2:mem:events;DB_CLOSE_DELAY=-1";
+
+    private final List<StatementEvent> events = new CopyOnWriteArrayList<>();
+    private PooledDataSource pool;
+    private JdbcAccessor accessor;
+
+    @Before
+    public void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS t");
+            stmt.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+            stmt.execute("INSERT INTO t VALUES (1), (2), (3)");
+        }
+        pool = PooledDataSource.builder(URL, "sa", "").build();
+        accessor = new JdbcAccessor(pool,
+                new StatementConfiguration.Builder().statementListener(events::add).build());
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void reportsStreamWhenClosed() {
+        try (Stream<Integer> ids = accessor.stream("SELECT id FROM t ORDER BY id", rs -> rs.getInt(1))) {
+            assertEquals(2, ids.limit(2).collect(Collectors.toList()).size());
+            assertTrue(events.isEmpty());
+        }
+        assertEquals(1, events.size());
+        StatementEvent event = events.get(0);
+        assertEquals(StatementEvent.Kind.SELECT, event.getKind());
+        assertFalse(event.isFailed());
+        assertEquals(2, event.getRows());
+    }
+
+    @Test
+    public void reportsExhaustedStreamOnce() {
+        try (Stream<Integer> ids = accessor.stream("SELECT id FROM t", rs -> rs.getInt(1))) {
+            assertEquals(3, ids.count());
+        }
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getRows());
+    }
+
+    @Test
+    public void reportsFailedStream() {
+        try {
+            accessor.stream("SELECT missing FROM t", rs -> rs.getInt(1));
+            fail("streamed an invalid query");
+        } catch (SQLRuntimeException expected) {
+            // expected
+        }
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).isFailed());
+        assertNotNull(events.get(0).getError());
+    }
+
+    @Test
+    public void chargesAcquireToTransactionNotStatements() {
+        accessor.inTransaction(() -> {
+            accessor.update("INSERT INTO t VALUES (?)", 4);
+            return accessor.select("SELECT COUNT(*) FROM t", new ScalarHandler<Long>());
+        });
+        assertEquals(2, events.size());
+        for (StatementEvent event : events) {
+            assertEquals(0, event.getAcquireNanos());
+        }
+    }
+
+    @Test
+    public void countsRowsReadByHandler() {
+        String sql = "SELECT id, id * 2 AS twice, 'x' AS name FROM t";
+        accessor.select(sql + " WHERE id = 1", new MapHandler());
+        accessor.select(sql + " WHERE id = 0", new MapHandler());
+        accessor.select(sql, new ColumnarHandler());
+        accessor.select(sql, new MapListHandler());
+        assertEquals(4, events.size());
+        assertEquals(1, events.get(0).getRows());
+        assertEquals(0, events.get(1).getRows());
+        assertEquals(3, events.get(2).getRows());
+        assertEquals(3, events.get(3).getRows());
+    }
+
+    @Test
+    public void releasesStreamWhenMapperThrows() {
+        try (Stream<Integer> ids = accessor.stream("SELECT id FROM t ORDER BY id", rs -> {
+            if (rs.getInt(1) == 2) {
+                throw new IllegalStateException("bad row");
+            }
+            return rs.getInt(1);
+        })) {
+            try {
+                ids.forEach(id -> { });
+                fail("mapped a bad row");
+            } catch (IllegalStateException expected) {
+                assertEquals(0, pool.getActiveConnections());
+            }
+        }
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).isFailed());
+    }
+}
@@ -0,0 +1,167 @@
+package idealist.dao;
+
+import idealist.dao.handlers.ScalarHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link WriteBehindBatcher} against an in-memory H2 database.
+ */
+public class WriteBehindBatcherTest {
+
+    private static final String URL = "jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1";
+    private static final String INSERT = "INSERT INTO t VALUES (?)";
+
+    private PooledDataSource pool;
+    private JdbcAccessor accessor;
+    private ExecutorService executor;
+    private AsyncJdbcAccessor async;
+
+    @Before
+    public void setUp() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS t");
+            stmt.execute("CREATE TABLE t (id INT PRIMARY KEY)");
+        }
+        pool = PooledDataSource.builder(URL, "sa", "").maxSize(2).build();
+        accessor = new JdbcAccessor(pool);
+        executor = Executors.newFixedThreadPool(2);
+        async = new AsyncJdbcAccessor(executor, accessor, 1);
+    }
+
+    @After
+    public void tearDown() {
+        async.close();
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    private long count() {
+        return accessor.select("SELECT COUNT(*) FROM t", new ScalarHandler<Long>());
+    }
+
+    @Test
+    public void flushesFullGroup() throws Exception {
+        try (WriteBehindBatcher batcher = new WriteBehindBatcher(async, 3, 1, TimeUnit.HOURS, 10)) {
+            CompletableFuture<Integer> first = batcher.update(INSERT, 1);
+            CompletableFuture<Integer> second = batcher.update(INSERT, 2);
+            assertFalse(first.isDone());
+            CompletableFuture<Integer> third = batcher.update(INSERT, 3);
+            assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), second.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), third.get(5, TimeUnit.SECONDS));
+            assertEquals(3, count());
+        }
+    }
+
+    @Test
+    public void flushesAfterMaxDelay() throws Exception {
+        try (WriteBehindBatcher batcher = new WriteBehindBatcher(async, 100, 50, TimeUnit.MILLISECONDS, 100)) {
+            long start = System.nanoTime();
+            CompletableFuture<Integer> first = batcher.update(INSERT, 1);
+            CompletableFuture<Integer> second = batcher.update("INSERT INTO t (id) VALUES (?)", 2);
+            assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), second.get(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(2, count());
+
+            // a drained group is dropped, and the next update of its SQL text waits for a new deadline
+            assertEquals(Integer.valueOf(1), batcher.update(INSERT, 3).get(5, TimeUnit.SECONDS));
+            assertEquals(3, count());
+        }
+    }
+
+    @Test
+    public void blocksAtCapacityUntilBatchRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> holder = async.supplyAsync(jdbc -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try (WriteBehindBatcher batcher = new WriteBehindBatcher(async, 2, 20, TimeUnit.MILLISECONDS, 2)) {
+            CompletableFuture<Integer> first = batcher.update(INSERT, 1);
+            CompletableFuture<Integer> second = batcher.update(INSERT, 2);
+            CompletableFuture<CompletableFuture<Integer>> third =
+                    CompletableFuture.supplyAsync(() -> batcher.update(INSERT, 3), producer);
+
+            // the full batch is rejected while the accessor is busy and holds the capacity until it is retried
+            Thread.sleep(100);
+            assertEquals(2, batcher.getPendingCount());
+            assertFalse(first.isDone());
+            assertFalse(third.isDone());
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), second.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), third.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+            assertEquals(0, batcher.getPendingCount());
+            assertEquals(3, count());
+        } finally {
+            release.countDown();
+            producer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void flushesOnClose() throws Exception {
+        WriteBehindBatcher batcher = new WriteBehindBatcher(async, 100, 1, TimeUnit.HOURS, 100);
+        CompletableFuture<Integer> first = batcher.update(INSERT, 1);
+        CompletableFuture<Integer> second = batcher.update(INSERT, 2);
+        batcher.close();
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(Integer.valueOf(1), first.get());
+        assertEquals(2, count());
+        try {
+            batcher.update(INSERT, 3).get(5, TimeUnit.SECONDS);
+            fail("queued an update after close");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void completesExecutedUpdatesOfFailedBatch() throws Exception {
+        accessor.update(INSERT, 2);
+        try (WriteBehindBatcher batcher = new WriteBehindBatcher(async, 3, 1, TimeUnit.HOURS, 10)) {
+            CompletableFuture<Integer> first = batcher.update(INSERT, 1);
+            CompletableFuture<Integer> duplicate = batcher.update(INSERT, 2);
+            CompletableFuture<Integer> third = batcher.update(INSERT, 3);
+            assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), third.get(5, TimeUnit.SECONDS));
+            try {
+                duplicate.get(5, TimeUnit.SECONDS);
+                fail("inserted a duplicate key");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLRuntimeException);
+            }
+            assertEquals(0, batcher.getPendingCount());
+            assertEquals(3, count());
+        }
+    }
+}